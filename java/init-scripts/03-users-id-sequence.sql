@@ -0,0 +1,9 @@
+-- Sequence-backed ids for the users table
+-- User.id uses a pooled sequence generator (allocationSize = 50), which lets Hibernate
+-- batch inserts. IDENTITY forced one INSERT + flush per user.
+-- INCREMENT BY must match the entity's allocationSize.
+
+CREATE SEQUENCE IF NOT EXISTS users_id_seq INCREMENT BY 50 OWNED BY users.id;
+
+-- Start past the seeded rows; the pooled optimizer hands out (value - 49 .. value)
+SELECT setval('users_id_seq', COALESCE(MAX(id), 0) + 50, false) FROM users;
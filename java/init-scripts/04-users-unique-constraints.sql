@@ -0,0 +1,9 @@
+-- Unique constraints backing the optimistic insert in UserService.persistUser
+-- Duplicate registrations are rejected by these constraints instead of existsByDni/existsByCorreo
+-- pre-checks; the constraint names must match User.DNI_UNIQUE_CONSTRAINT / CORREO_UNIQUE_CONSTRAINT.
+
+ALTER TABLE users ADD CONSTRAINT uk_users_dni UNIQUE (dni);
+ALTER TABLE users ADD CONSTRAINT uk_users_correo UNIQUE (correo);
+
+-- The unique constraint's index replaces the plain one
+DROP INDEX IF EXISTS idx_users_dni;
@@ -0,0 +1,58 @@
+package com.registration.userservice.codec;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of a RegistrationRequest per codec, as done by the listener for every message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    @Param({MessageProperties.CONTENT_TYPE_JSON, CborMessageConverter.CONTENT_TYPE})
+    private String contentType;
+
+    private MessageConverter codec;
+    private RegistrationRequest request;
+    private Message encoded;
+
+    @Setup
+    public void setUp() {
+        codec = CborMessageConverter.CONTENT_TYPE.equals(contentType)
+                ? new CborMessageConverter()
+                : new Jackson2JsonMessageConverter();
+        request = RegistrationRequest.builder()
+                .nombre("Juan Pérez")
+                .correo("juan.perez@example.com")
+                .clave(123456)
+                .dni(12345678)
+                .telefono(987654321)
+                .friendsDni(List.of(20000001, 20000002, 20000003, 20000004, 20000005))
+                .build();
+        encoded = codec.toMessage(request, new MessageProperties());
+        // The listener adapter sets this from the @RabbitListener method argument
+        encoded.getMessageProperties().setInferredArgumentType(RegistrationRequest.class);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return codec.fromMessage(encoded);
+    }
+
+    @Benchmark
+    public Message encode() {
+        return codec.toMessage(request, new MessageProperties());
+    }
+}
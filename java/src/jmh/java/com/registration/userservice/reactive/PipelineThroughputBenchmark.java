@@ -0,0 +1,90 @@
+package com.registration.userservice.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.registration.userservice.dto.RegistrationRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end registrations through a running LP1: publishes a burst of registrations to queue_lp1
+ * and waits for every lp1.persisted response. Run it once against LP1 started with the default
+ * (blocking listener) profile and once with the reactive profile to compare the two pipelines:
+ * {@code mvn -P benchmarks test-compile exec:exec -Djmh.args="PipelineThroughput -p burst=5000"}.
+ * Connects to localhost:5672 unless -Drabbitmq.host / -Drabbitmq.port are given.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineThroughputBenchmark {
+
+    private static final String EXCHANGE = "registro_bus";
+    private static final String PERSIST_ROUTING_KEY = "lp1.persist";
+    private static final String PERSISTED_ROUTING_KEY = "lp1.persisted";
+
+    @Param("1000")
+    private int burst;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // DNIs above any real one, 10,000 per second of start time, so every registration is a fresh insert
+    private final AtomicInteger nextDni =
+            new AtomicInteger(1_000_000_000 + (int) (System.currentTimeMillis() / 1000 % 100_000) * 10_000);
+    private Connection connection;
+    private Channel channel;
+    private volatile CountDownLatch responses;
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        ConnectionFactory connectionFactory = new ConnectionFactory();
+        connectionFactory.setHost(System.getProperty("rabbitmq.host", "localhost"));
+        connectionFactory.setPort(Integer.getInteger("rabbitmq.port", 5672));
+        connectionFactory.setUsername(System.getProperty("rabbitmq.username", "admin"));
+        connectionFactory.setPassword(System.getProperty("rabbitmq.password", "admin123"));
+        connection = connectionFactory.newConnection();
+        channel = connection.createChannel();
+
+        // A private copy of every response, next to queue_lp3_ack
+        String responseQueue = channel.queueDeclare().getQueue();
+        channel.queueBind(responseQueue, EXCHANGE, PERSISTED_ROUTING_KEY);
+        channel.basicConsume(responseQueue, true, (consumerTag, delivery) -> responses.countDown(), consumerTag -> { });
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    public long registerBurst() throws Exception {
+        responses = new CountDownLatch(burst);
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType("application/json")
+                .build();
+        for (int i = 0; i < burst; i++) {
+            int dni = nextDni.incrementAndGet();
+            RegistrationRequest request = RegistrationRequest.builder()
+                    .nombre("Bench User " + dni)
+                    .correo("bench" + dni + "@example.com")
+                    .clave(1234)
+                    .dni(dni)
+                    .telefono(900000000 + i)
+                    .friendsDni(List.of(dni - 1, dni - 2))
+                    .build();
+            channel.basicPublish(EXCHANGE, PERSIST_ROUTING_KEY, properties, objectMapper.writeValueAsBytes(request));
+        }
+        if (!responses.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(responses.getCount() + " of " + burst + " responses missing");
+        }
+        return burst;
+    }
+}
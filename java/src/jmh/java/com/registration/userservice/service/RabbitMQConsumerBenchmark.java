@@ -0,0 +1,59 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message validation done by the consumer before persisting, for a valid request and for
+ * a rejected one (which pays for the IllegalArgumentException).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RabbitMQConsumerBenchmark {
+
+    private RabbitMQConsumer consumer;
+    private RegistrationRequest validRequest;
+    private RegistrationRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        consumer = new RabbitMQConsumer(null, null, new RegistrationMetrics(new SimpleMeterRegistry()),
+                null, null, null, null, null, null, null);
+        validRequest = RegistrationRequest.builder()
+                .nombre("Juan Pérez")
+                .correo("juan.perez@example.com")
+                .clave(123456)
+                .dni(12345678)
+                .telefono(987654321)
+                .friendsDni(List.of(20000001, 20000002))
+                .build();
+        invalidRequest = RegistrationRequest.builder()
+                .nombre("Juan Pérez")
+                .dni(12345678)
+                .build();
+    }
+
+    @Benchmark
+    public RegistrationRequest validateValidRequest() {
+        consumer.validateRequest(validRequest);
+        return validRequest;
+    }
+
+    @Benchmark
+    public String validateInvalidRequest() {
+        try {
+            consumer.validateRequest(invalidRequest);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.UserServiceApplication;
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response building and persistUser against the embedded H2 database of the test profile
+ * (PostgreSQL mode), without RabbitMQ.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final List<Integer> FRIENDS_DNI = List.of(1001, 1002, 1003);
+
+    @State(Scope.Benchmark)
+    public static class ResponseState {
+        private final UserService userService =
+                new UserService(null, null, null, new RegistrationMetrics(new SimpleMeterRegistry()), null, null);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+        private final AtomicInteger nextDni = new AtomicInteger(30_000_000);
+        private ConfigurableApplicationContext context;
+        private UserService userService;
+        private RegistrationRequest existingUser;
+
+        @Setup(Level.Trial)
+        public void startContext() {
+            context = new SpringApplicationBuilder(UserServiceApplication.class)
+                    .profiles("test")
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.jpa.show-sql=false",
+                            "spring.jpa.properties.hibernate.generate_statistics=false",
+                            "logging.level.root=WARN",
+                            "logging.level.org.springframework.amqp=ERROR",
+                            "logging.level.com.registration.userservice=WARN",
+                            "logging.level.org.hibernate.SQL=WARN",
+                            "logging.level.org.hibernate.type=WARN")
+                    .run();
+            // No broker in a benchmark run; only the service is measured
+            context.getBean(RabbitListenerEndpointRegistry.class).stop();
+            userService = context.getBean(UserService.class);
+
+            FRIENDS_DNI.forEach(dni -> userService.persistUser(request(dni, List.of())));
+            existingUser = request(nextDni.incrementAndGet(), FRIENDS_DNI);
+            userService.persistUser(existingUser);
+        }
+
+        @TearDown(Level.Trial)
+        public void closeContext() {
+            context.close();
+        }
+
+        RegistrationRequest nextRequest() {
+            return request(nextDni.incrementAndGet(), FRIENDS_DNI);
+        }
+
+        private static RegistrationRequest request(int dni, List<Integer> friendsDni) {
+            return RegistrationRequest.builder()
+                    .nombre("Benchmark User " + dni)
+                    .correo("bench" + dni + "@example.com")
+                    .clave(123456)
+                    .dni(dni)
+                    .telefono(987654321)
+                    .friendsDni(friendsDni)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public PersistenceResponse buildResponse(ResponseState state) {
+        return state.userService.buildResponse(12345678, "SUCCESS", "User registered successfully with DNI: 12345678");
+    }
+
+    @Benchmark
+    public PersistenceResponse persistNewUser(DatabaseState state) {
+        return state.userService.persistUser(state.nextRequest());
+    }
+
+    @Benchmark
+    public PersistenceResponse persistDuplicateUser(DatabaseState state) {
+        return state.userService.persistUser(state.existingUser);
+    }
+}
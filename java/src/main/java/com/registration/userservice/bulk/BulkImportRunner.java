@@ -0,0 +1,55 @@
+package com.registration.userservice.bulk;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line seeding, active with the bulk-import profile:
+ * {@code java -jar user-service.jar --spring.profiles.active=bulk-import --file=users.csv [--format=csv|ndjson]}.
+ * Imports the file and exits, with status 1 if the import failed.
+ */
+@Slf4j
+@Component
+@Profile("bulk-import")
+@RequiredArgsConstructor
+public class BulkImportRunner implements ApplicationRunner {
+
+    private final BulkImportService bulkImportService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = importFile(option(args, "file"), option(args, "format"));
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private int importFile(String file, String formatName) {
+        if (file == null) {
+            log.error("No file to import, pass --file=<path>");
+            return 1;
+        }
+        try (InputStream input = Files.newInputStream(Path.of(file))) {
+            bulkImportService.importUsers(input, ImportFormat.resolve(formatName, file));
+            return 0;
+        } catch (Exception e) {
+            log.error("Bulk import of {} failed, nothing was imported", file, e);
+            return 1;
+        }
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
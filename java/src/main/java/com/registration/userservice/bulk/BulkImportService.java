@@ -0,0 +1,285 @@
+package com.registration.userservice.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.registration.userservice.dto.BulkImportReport;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.entity.User;
+import com.registration.userservice.service.RegistrationValidator;
+import com.registration.userservice.service.UserExistenceFilter;
+import com.registration.userservice.service.UserQueryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeds the users and friend tables from a CSV or NDJSON file through the PostgreSQL COPY protocol,
+ * bypassing JPA. Rows are validated with the consumer's rules and streamed into a temporary staging
+ * table, then moved into users and friend with one INSERT ... SELECT each, all in one transaction.
+ * Users whose DNI or email is taken are skipped, as are their friend rows. Unlike the registration
+ * pipeline, friends may name any user in the file, not only earlier ones.
+ * Ids come from users_id_seq in blocks of User.ID_ALLOCATION_SIZE, the same blocks Hibernate reserves.
+ * The friend graph index picks up imported users after a restart, as with other instances' registrations.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkImportService {
+
+    private static final int BLOCK = User.ID_ALLOCATION_SIZE;
+
+    static final String CREATE_STAGING = """
+            CREATE TEMP TABLE import_users (
+                seq INT NOT NULL, nombre VARCHAR(512), correo VARCHAR(512), clave INT,
+                dni INT, telefono INT, friends_dni INT[]
+            ) ON COMMIT DROP""";
+
+    static final String COPY_STAGING =
+            "COPY import_users (seq, nombre, correo, clave, dni, telefono, friends_dni) FROM STDIN";
+
+    static final String CREATE_INSERTED =
+            "CREATE TEMP TABLE import_inserted (id INT, dni INT, correo VARCHAR(512)) ON COMMIT DROP";
+
+    // Each staged row takes slot seq % BLOCK of block seq / BLOCK; every block is one nextval
+    static final String INSERT_USERS = """
+            WITH blocks AS (
+                SELECT g AS block, nextval('%1$s') AS last_id FROM generate_series(0, ?) AS g
+            ), inserted AS (
+                INSERT INTO users (id, nombre, correo, clave, dni, telefono)
+                SELECT b.last_id - %2$d + 1 + s.seq %% %2$d, s.nombre, s.correo, s.clave, s.dni, s.telefono
+                FROM import_users s JOIN blocks b ON b.block = s.seq / %2$d
+                ORDER BY s.seq
+                ON CONFLICT DO NOTHING
+                RETURNING id, dni, correo
+            )
+            INSERT INTO import_inserted SELECT id, dni, correo FROM inserted""".formatted(User.ID_SEQUENCE, BLOCK);
+
+    static final String INSERT_FRIENDS = """
+            INSERT INTO friend (user_id, friend_id)
+            SELECT DISTINCT i.id, f.id
+            FROM import_users s
+            JOIN import_inserted i ON i.dni = s.dni AND i.correo = s.correo
+            CROSS JOIN LATERAL unnest(s.friends_dni) AS fd(dni)
+            JOIN users f ON f.dni = fd.dni
+            ON CONFLICT DO NOTHING""";
+
+    static final String SELECT_INSERTED = "SELECT dni, correo FROM import_inserted";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final UserExistenceFilter existenceFilter;
+    private final UserQueryService userQueryService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.bulk-import.max-rejections-reported:20}")
+    private int maxRejectionsReported;
+
+    private Timer importTimer;
+    private Counter rowsInserted;
+    private Counter rowsDuplicate;
+    private Counter rowsRejected;
+
+    @PostConstruct
+    void init() {
+        importTimer = Timer.builder("users.bulk.import")
+                .description("Bulk imports, from the first row read to commit")
+                .register(meterRegistry);
+        rowsInserted = rowsCounter("inserted");
+        rowsDuplicate = rowsCounter("duplicate");
+        rowsRejected = rowsCounter("rejected");
+    }
+
+    /**
+     * Imports every user in the input, which is read as UTF-8 and not closed
+     * @return Row counts and throughput; nothing is imported if an IOException or SQLException is thrown
+     */
+    public BulkImportReport importUsers(InputStream input, ImportFormat format) throws IOException, SQLException {
+        long start = System.nanoTime();
+        UserRecordReader records = new UserRecordReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8), format, objectMapper);
+        BulkImportReport report = BulkImportReport.builder().rejections(new ArrayList<>()).build();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING);
+                    statement.execute(CREATE_INSERTED);
+                }
+                int staged = stage(connection, records, report);
+                if (staged > 0) {
+                    insertStaged(connection, staged, report);
+                }
+                connection.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        importTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        rowsInserted.increment(report.getUsersInserted());
+        rowsDuplicate.increment(report.getDuplicates());
+        rowsRejected.increment(report.getRowsRejected());
+        report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setRowsPerSecond(report.getRowsRead() * 1000L / Math.max(1, report.getElapsedMs()));
+        log.info("Bulk import of {} rows: {} users and {} friend rows inserted, {} duplicates, {} rejected in {} ms ({} rows/s)",
+                report.getRowsRead(), report.getUsersInserted(), report.getFriendshipsInserted(),
+                report.getDuplicates(), report.getRowsRejected(), report.getElapsedMs(), report.getRowsPerSecond());
+
+        if (report.getUsersInserted() > 0) {
+            // Cached misses predate the import; the existence filter was updated row by row
+            userQueryService.evictAll();
+        }
+        return report;
+    }
+
+    /**
+     * Streams the valid rows into the staging table with COPY
+     * @return The number of rows staged
+     */
+    private int stage(Connection connection, UserRecordReader records, BulkImportReport report)
+            throws IOException, SQLException {
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_STAGING, 1 << 16);
+        int staged = 0;
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), 1 << 16);
+            StringBuilder row = new StringBuilder(256);
+            while (true) {
+                RegistrationRequest request;
+                try {
+                    request = records.next();
+                    if (request == null) {
+                        break;
+                    }
+                    RegistrationValidator.validate(request);
+                } catch (IllegalArgumentException e) {
+                    reject(report, records.lineNumber(), e.getMessage());
+                    continue;
+                }
+                row.setLength(0);
+                appendCopyRow(row, staged++, request);
+                writer.append(row);
+            }
+            writer.flush();
+            copy.endCopy();
+            report.setRowsRead(staged + report.getRowsRejected());
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // Temp tables are never auto-analyzed; the INSERT ... SELECT joins need row estimates
+            statement.execute("ANALYZE import_users");
+        }
+        return staged;
+    }
+
+    private void insertStaged(Connection connection, int staged, BulkImportReport report) throws SQLException {
+        try (PreparedStatement insertUsers = connection.prepareStatement(INSERT_USERS)) {
+            insertUsers.setInt(1, (staged - 1) / BLOCK);
+            report.setUsersInserted(insertUsers.executeUpdate());
+        }
+        report.setDuplicates(staged - report.getUsersInserted());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE import_inserted");
+            report.setFriendshipsInserted(statement.executeUpdate(INSERT_FRIENDS));
+        }
+
+        // Before commit, while import_inserted exists; a rolled back import only leaves extra possible hits
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(10_000);
+            try (ResultSet inserted = statement.executeQuery(SELECT_INSERTED)) {
+                while (inserted.next()) {
+                    existenceFilter.recordUser(inserted.getInt(1), inserted.getString(2));
+                }
+            }
+        }
+    }
+
+    private void reject(BulkImportReport report, long lineNumber, String reason) {
+        report.setRowsRejected(report.getRowsRejected() + 1);
+        if (report.getRejections().size() < maxRejectionsReported) {
+            report.getRejections().add("line " + lineNumber + ": " + reason);
+            log.warn("Rejected bulk import line {}: {}", lineNumber, reason);
+        } else {
+            log.debug("Rejected bulk import line {}: {}", lineNumber, reason);
+        }
+    }
+
+    /**
+     * Appends one row in COPY text format: tab separated, \N for null, friends as an int[] literal
+     */
+    static void appendCopyRow(StringBuilder row, int seq, RegistrationRequest request) {
+        row.append(seq).append('\t');
+        appendText(row, request.getNombre());
+        row.append('\t');
+        appendText(row, request.getCorreo());
+        row.append('\t').append(request.getClave())
+                .append('\t').append(request.getDni())
+                .append('\t').append(request.getTelefono())
+                .append('\t');
+        List<Integer> friends = request.getFriendsDni();
+        if (friends == null || friends.isEmpty()) {
+            row.append("\\N");
+        } else {
+            row.append('{');
+            for (int i = 0; i < friends.size(); i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                row.append(friends.get(i) == null ? "NULL" : friends.get(i).toString());
+            }
+            row.append('}');
+        }
+        row.append('\n');
+    }
+
+    private static void appendText(StringBuilder row, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+    }
+
+    private Counter rowsCounter(String result) {
+        return Counter.builder("users.bulk.import.rows")
+                .description("Bulk imported rows by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.registration.userservice.bulk;
+
+import java.util.Locale;
+
+/**
+ * Input formats of a bulk import. Both carry one user per line with the fields of a RegistrationRequest.
+ */
+public enum ImportFormat {
+    // Header row naming the columns: nombre, correo, clave, dni, telefono and optionally friends_dni
+    // (friend DNIs separated by ';')
+    CSV("text/csv", ".csv"),
+    // One RegistrationRequest JSON object per line
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ImportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the content type is neither text/csv nor application/x-ndjson
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        String mimeType = contentType == null ? "" : contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        for (ImportFormat format : values()) {
+            if (format.contentType.equals(mimeType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+    }
+
+    /**
+     * Format given by name (csv, ndjson), or else by the file extension
+     * @throws IllegalArgumentException if neither identifies a format
+     */
+    public static ImportFormat resolve(String name, String fileName) {
+        if (name != null && !name.isBlank()) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+        String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
+        for (ImportFormat format : values()) {
+            if (lowerCaseFileName.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Cannot tell the import format of " + fileName + ", pass --format=csv|ndjson");
+    }
+}
@@ -0,0 +1,179 @@
+package com.registration.userservice.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.registration.userservice.dto.RegistrationRequest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams the users of a bulk import file one line at a time, so the file never has to fit in memory.
+ * A line that cannot be parsed throws IllegalArgumentException and the reader moves on to the next one.
+ */
+public class UserRecordReader implements Closeable {
+
+    static final List<String> CSV_COLUMNS = List.of("nombre", "correo", "clave", "dni", "telefono", "friends_dni");
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectReader jsonReader;
+    private Map<String, Integer> csvColumns;
+    private long lineNumber;
+
+    public UserRecordReader(Reader reader, ImportFormat format, ObjectMapper objectMapper) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        this.format = format;
+        this.jsonReader = objectMapper.readerFor(RegistrationRequest.class);
+    }
+
+    /**
+     * @return The next user, or null at the end of the input
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public RegistrationRequest next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        if (format == ImportFormat.NDJSON) {
+            return parseJson(line);
+        }
+        if (csvColumns == null) {
+            csvColumns = parseHeader(line);
+            return next();
+        }
+        return parseCsv(line);
+    }
+
+    /**
+     * Line of the user last returned or rejected, starting at 1
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private RegistrationRequest parseJson(String line) {
+        try {
+            return jsonReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT);
+            if (CSV_COLUMNS.contains(name)) {
+                columns.put(name, i);
+            }
+        }
+        for (String required : CSV_COLUMNS.subList(0, CSV_COLUMNS.size() - 1)) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalStateException("CSV header is missing the " + required + " column: " + line);
+            }
+        }
+        return columns;
+    }
+
+    private RegistrationRequest parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return RegistrationRequest.builder()
+                .nombre(text(fields, "nombre"))
+                .correo(text(fields, "correo"))
+                .clave(integer(fields, "clave"))
+                .dni(integer(fields, "dni"))
+                .telefono(integer(fields, "telefono"))
+                .friendsDni(friendDnis(text(fields, "friends_dni")))
+                .build();
+    }
+
+    private String text(List<String> fields, String column) {
+        Integer index = csvColumns.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    private Integer integer(List<String> fields, String column) {
+        String value = text(fields, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static List<Integer> friendDnis(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        List<Integer> dnis = new ArrayList<>();
+        for (String dni : value.split(";")) {
+            if (!dni.isBlank()) {
+                try {
+                    dnis.add(Integer.valueOf(dni.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid friends_dni: " + value);
+                }
+            }
+        }
+        return dnis;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may hold commas and "" escapes, but no line breaks
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
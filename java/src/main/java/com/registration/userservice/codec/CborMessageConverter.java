@@ -0,0 +1,50 @@
+package com.registration.userservice.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Binary codec using CBOR (RFC 8949): the same object model as the JSON messages, with compact
+ * integers and no text escaping. The target type comes from the listener method argument.
+ */
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    private final ObjectMapper cborMapper = CBORMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = cborMapper.writeValueAsBytes(object);
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to encode " + object.getClass().getSimpleName() + " as CBOR", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        Type inferredType = message.getMessageProperties().getInferredArgumentType();
+        JavaType targetType = cborMapper.constructType(inferredType != null ? inferredType : Map.class);
+        try {
+            return cborMapper.readValue(message.getBody(), targetType);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode CBOR message as " + targetType, e);
+        }
+    }
+}
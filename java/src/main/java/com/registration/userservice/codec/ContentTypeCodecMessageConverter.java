@@ -0,0 +1,63 @@
+package com.registration.userservice.codec;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the codec for an incoming message from its AMQP content-type, so JSON peers and
+ * binary peers can share a queue. Messages without a known content-type are decoded with the
+ * fallback codec (JSON). Outgoing messages use a single configured codec.
+ */
+public class ContentTypeCodecMessageConverter implements MessageConverter {
+
+    private final Map<String, MessageConverter> codecs;
+    private final MessageConverter fallbackCodec;
+    private final MessageConverter outboundCodec;
+
+    /**
+     * @param codecs Codecs keyed by content-type (without parameters)
+     * @param fallbackContentType Codec for messages with a missing or unknown content-type
+     * @param outboundContentType Codec used for every outgoing message
+     */
+    public ContentTypeCodecMessageConverter(Map<String, MessageConverter> codecs,
+                                            String fallbackContentType,
+                                            String outboundContentType) {
+        this.codecs = Map.copyOf(codecs);
+        this.fallbackCodec = requireCodec(fallbackContentType);
+        this.outboundCodec = requireCodec(outboundContentType);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        return outboundCodec.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        return codecFor(message.getMessageProperties().getContentType()).fromMessage(message);
+    }
+
+    MessageConverter codecFor(String contentType) {
+        if (contentType == null) {
+            return fallbackCodec;
+        }
+        int parameters = contentType.indexOf(';');
+        String baseType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        return codecs.getOrDefault(baseType, fallbackCodec);
+    }
+
+    private MessageConverter requireCodec(String contentType) {
+        MessageConverter codec = codecs.get(contentType);
+        if (codec == null) {
+            throw new MessageConversionException("No codec registered for content-type " + contentType
+                    + ", available: " + codecs.keySet());
+        }
+        return codec;
+    }
+}
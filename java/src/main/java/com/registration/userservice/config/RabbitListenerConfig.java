@@ -0,0 +1,177 @@
+package com.registration.userservice.config;
+
+import com.registration.userservice.service.RabbitMQConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.RabbitRetryTemplateCustomizer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class RabbitListenerConfig {
+
+    @Value("${rabbitmq.listener.concurrency:1}")
+    private int concurrency;
+
+    @Value("${rabbitmq.listener.max-concurrency:1}")
+    private int maxConcurrency;
+
+    @Value("${rabbitmq.listener.prefetch:250}")
+    private int prefetch;
+
+    @Value("${rabbitmq.listener.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${rabbitmq.listener.batch.size:50}")
+    private int batchSize;
+
+    @Value("${rabbitmq.listener.batch.receive-timeout-ms:200}")
+    private long batchReceiveTimeoutMs;
+
+    @Value("${rabbitmq.lanes.bulk.concurrency:1}")
+    private int bulkConcurrency;
+
+    @Value("${rabbitmq.lanes.bulk.prefetch:10}")
+    private int bulkPrefetch;
+
+    /**
+     * Replaces Spring Boot's default container factory so queue_lp1 consumption is tuned
+     * from the rabbitmq.listener.* properties instead of a single default consumer.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        applyTuning(factory);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
+    /**
+     * Container factory for the batch listener. The container hands over a batch as soon as
+     * it holds batch.size messages, or when no new message arrived within receive-timeout-ms.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        applyTuning(factory);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchReceiveTimeoutMs);
+        return factory;
+    }
+
+    /**
+     * Container factory for the bulk lane listener: a fixed, smaller number of consumers than the
+     * queue_lp1 listener, which sets how much of the database a bulk load can take.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory bulkListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        applyTuning(factory);
+        factory.setConcurrentConsumers(bulkConcurrency);
+        factory.setMaxConcurrentConsumers(bulkConcurrency);
+        factory.setPrefetchCount(bulkPrefetch);
+        return factory;
+    }
+
+    /**
+     * Keeps a delivery that the listener wants requeued (ImmediateRequeueAmqpException, thrown while
+     * admission control refuses work) out of spring.rabbitmq.listener.simple.retry: it is not retried
+     * on the consumer thread. Any other failure keeps the configured attempts.
+     */
+    @Bean
+    public RabbitRetryTemplateCustomizer listenerRetryPolicy(RabbitProperties rabbitProperties) {
+        int maxAttempts = rabbitProperties.getListener().getSimple().getRetry().getMaxAttempts();
+        return (target, retryTemplate) -> {
+            if (target == RabbitRetryTemplateCustomizer.Target.LISTENER) {
+                retryTemplate.setRetryPolicy(new SimpleRetryPolicy(maxAttempts,
+                        Map.of(ImmediateRequeueAmqpException.class, false), true, true));
+            }
+        };
+    }
+
+    /**
+     * Recoverer of the listener retry: rethrows ImmediateRequeueAmqpException so the container requeues
+     * the delivery, and rejects anything else without requeue once its attempts are used up, like
+     * Spring Boot's default recoverer.
+     */
+    @Bean
+    public MessageRecoverer listenerMessageRecoverer() {
+        MessageRecoverer reject = new RejectAndDontRequeueRecoverer();
+        return (message, cause) -> {
+            for (Throwable t = cause; t != null; t = t.getCause()) {
+                if (t instanceof ImmediateRequeueAmqpException requeue) {
+                    throw requeue;
+                }
+            }
+            reject.recover(message, cause);
+        };
+    }
+
+    /**
+     * Active consumers and running state of the registration listener containers. Containers are
+     * looked up on every scrape since they are registered after the meter binders run.
+     */
+    @Bean
+    public MeterBinder listenerContainerMetrics(RabbitListenerEndpointRegistry endpointRegistry) {
+        return meterRegistry -> {
+            for (String listenerId : List.of(RabbitMQConsumer.LISTENER_ID, RabbitMQConsumer.BATCH_LISTENER_ID,
+                    RabbitMQConsumer.BULK_LISTENER_ID)) {
+                Gauge.builder("rabbitmq.listener.consumers", endpointRegistry,
+                                registry -> activeConsumers(registry.getListenerContainer(listenerId)))
+                        .description("Active consumers of the listener container")
+                        .tag("listener", listenerId)
+                        .register(meterRegistry);
+                Gauge.builder("rabbitmq.listener.running", endpointRegistry,
+                                registry -> isRunning(registry.getListenerContainer(listenerId)) ? 1 : 0)
+                        .description("1 while the listener container is running")
+                        .tag("listener", listenerId)
+                        .register(meterRegistry);
+            }
+        };
+    }
+
+    private static int activeConsumers(MessageListenerContainer container) {
+        return container instanceof SimpleMessageListenerContainer simple ? simple.getActiveConsumerCount() : 0;
+    }
+
+    private static boolean isRunning(MessageListenerContainer container) {
+        return container != null && container.isRunning();
+    }
+
+    private void applyTuning(SimpleRabbitListenerContainerFactory factory) {
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        if (virtualThreads) {
+            // Each consumer blocks on JDBC for most of its time, which is cheap on a virtual thread
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("lp1-listener-"));
+        }
+    }
+}
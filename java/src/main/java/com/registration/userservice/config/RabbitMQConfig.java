@@ -1,14 +1,23 @@
 package com.registration.userservice.config;
 
+import com.registration.userservice.codec.CborMessageConverter;
+import com.registration.userservice.codec.ContentTypeCodecMessageConverter;
+import com.registration.userservice.partition.ShardAssignment;
+import com.registration.userservice.service.RegistrationRetries;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -27,6 +36,36 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.persisted}")
     private String persistedRoutingKey;
 
+    @Value("${rabbitmq.queues.bulk:queue_lp1.bulk}")
+    private String bulkQueue;
+
+    @Value("${rabbitmq.routing-keys.bulk:lp1.persist.bulk}")
+    private String bulkRoutingKey;
+
+    @Value("${rabbitmq.retry.exchange:registro_bus.retry}")
+    private String retryExchange;
+
+    @Value("${rabbitmq.retry.delays-ms:1000,5000,30000}")
+    private long[] retryDelaysMs;
+
+    @Value("${rabbitmq.retry.dead-letter-exchange:registro_bus.dlx}")
+    private String deadLetterExchange;
+
+    @Value("${rabbitmq.retry.parking-lot:queue_lp1.parking-lot}")
+    private String parkingLotQueue;
+
+    @Value("${rabbitmq.retry.parking-lot-routing-key:lp1.parked}")
+    private String parkingLotRoutingKey;
+
+    @Value("${rabbitmq.partitions.count:16}")
+    private int partitionCount;
+
+    @Value("${rabbitmq.partitions.members-exchange:registro_bus.lp1.members}")
+    private String partitionMembersExchange;
+
+    @Value("${rabbitmq.codec.outbound-content-type:application/json}")
+    private String outboundContentType;
+
     @Bean
     public DirectExchange registroExchange() {
         return new DirectExchange(exchangeName);
@@ -50,15 +89,95 @@ public class RabbitMQConfig {
                 .with(persistRoutingKey);
     }
 
+    /**
+     * Bulk lane (see RegistrationLanes): bulk registrations wait here instead of in queue_lp1, so
+     * interactive ones are not queued behind them
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.lanes.enabled", havingValue = "true")
+    public Declarables bulkLaneTopology() {
+        Queue queue = QueueBuilder.durable(bulkQueue).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(registroExchange()).with(bulkRoutingKey));
+    }
+
+    /**
+     * Retry topology for registrations that failed on a transient error (see RegistrationRetries): one
+     * delay queue per tier whose expired messages are dead-lettered back to queue_lp1, and the parking lot
+     * behind the dead-letter exchange. queue_lp1 itself keeps no arguments, as declared in definitions.json.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public Declarables retryTopology() {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange retry = new DirectExchange(retryExchange);
+        declarables.add(retry);
+        for (long delayMs : retryDelaysMs) {
+            String name = RegistrationRetries.delayQueue(persistQueue, delayMs);
+            Queue delayQueue = QueueBuilder.durable(name)
+                    .ttl(Math.toIntExact(delayMs))
+                    .deadLetterExchange(exchangeName)
+                    .deadLetterRoutingKey(persistRoutingKey)
+                    .build();
+            declarables.add(delayQueue);
+            declarables.add(BindingBuilder.bind(delayQueue).to(retry).with(name));
+        }
+        DirectExchange deadLetter = new DirectExchange(deadLetterExchange);
+        Queue parkingLot = QueueBuilder.durable(parkingLotQueue).build();
+        declarables.add(deadLetter);
+        declarables.add(parkingLot);
+        declarables.add(BindingBuilder.bind(parkingLot).to(deadLetter).with(parkingLotRoutingKey));
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Partitioned mode (see PartitionedConsumers): one single-active-consumer queue per shard, bound to
+     * registro_bus with its shard routing key, and the fanout exchange LP1 nodes announce themselves on.
+     * Changing rabbitmq.partitions.count re-routes DNIs, so drain the shard queues first.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.partitions.enabled", havingValue = "true")
+    public Declarables partitionTopology() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int shard = 0; shard < partitionCount; shard++) {
+            Queue shardQueue = QueueBuilder.durable(ShardAssignment.shardQueue(persistQueue, shard))
+                    .singleActiveConsumer()
+                    .build();
+            declarables.add(shardQueue);
+            declarables.add(BindingBuilder.bind(shardQueue).to(registroExchange())
+                    .with(ShardAssignment.shardRoutingKey(persistRoutingKey, shard)));
+        }
+        FanoutExchange members = new FanoutExchange(partitionMembersExchange);
+        declarables.add(members);
+        declarables.add(BindingBuilder.bind(partitionMembersQueue()).to(members));
+        return new Declarables(declarables);
+    }
+
+    /**
+     * This node's heartbeat inbox; exclusive and auto-delete, so it goes away with the node
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.partitions.enabled", havingValue = "true")
+    public Queue partitionMembersQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("queue_lp1.members."));
+    }
+
+    /**
+     * Decodes by the message content-type (JSON for the Node/Python peers, CBOR for binary producers)
+     * and encodes outgoing responses with rabbitmq.codec.outbound-content-type
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter() {
+        return new ContentTypeCodecMessageConverter(
+                Map.of(MessageProperties.CONTENT_TYPE_JSON, new Jackson2JsonMessageConverter(),
+                        CborMessageConverter.CONTENT_TYPE, new CborMessageConverter()),
+                MessageProperties.CONTENT_TYPE_JSON,
+                outboundContentType);
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter());
         return rabbitTemplate;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.registration.userservice.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.scheduler.Schedulers;
+import reactor.rabbitmq.RabbitFlux;
+import reactor.rabbitmq.Receiver;
+import reactor.rabbitmq.ReceiverOptions;
+import reactor.rabbitmq.Sender;
+import reactor.rabbitmq.SenderOptions;
+
+/**
+ * Non-blocking clients for the reactive pipeline: an R2DBC pool on the same database as the JPA
+ * DataSource, and reactor-rabbitmq receiver/sender on the broker Spring AMQP connects to.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactivePipelineConfig {
+
+    @Value("${spring.r2dbc.url}")
+    private String r2dbcUrl;
+
+    @Value("${spring.r2dbc.username:${spring.datasource.username}}")
+    private String r2dbcUsername;
+
+    @Value("${spring.r2dbc.password:${spring.datasource.password}}")
+    private String r2dbcPassword;
+
+    @Value("${spring.r2dbc.pool.max-size:10}")
+    private int poolMaxSize;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool r2dbcConnectionFactory() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(r2dbcUrl).mutate()
+                .option(ConnectionFactoryOptions.USER, r2dbcUsername)
+                .option(ConnectionFactoryOptions.PASSWORD, r2dbcPassword)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(poolMaxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool r2dbcConnectionFactory) {
+        return DatabaseClient.create(r2dbcConnectionFactory);
+    }
+
+    /**
+     * Reuses the broker address and credentials of the Spring AMQP connection factory
+     */
+    @Bean(destroyMethod = "close")
+    public Receiver reactiveReceiver(CachingConnectionFactory rabbitConnectionFactory) {
+        return RabbitFlux.createReceiver(new ReceiverOptions()
+                .connectionFactory(rabbitConnectionFactory.getRabbitConnectionFactory())
+                .connectionSubscriptionScheduler(Schedulers.boundedElastic()));
+    }
+
+    @Bean(destroyMethod = "close")
+    public Sender reactiveSender(CachingConnectionFactory rabbitConnectionFactory) {
+        return RabbitFlux.createSender(new SenderOptions()
+                .connectionFactory(rabbitConnectionFactory.getRabbitConnectionFactory())
+                .resourceManagementScheduler(Schedulers.boundedElastic()));
+    }
+}
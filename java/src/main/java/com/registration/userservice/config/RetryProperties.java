@@ -0,0 +1,30 @@
+package com.registration.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Named retry policies (retry.policies.&lt;name&gt;.*) used by RetryUtil
+ */
+@ConfigurationProperties(prefix = "retry")
+public record RetryProperties(Map<String, Policy> policies) {
+
+    public RetryProperties {
+        policies = policies == null ? Map.of() : Map.copyOf(policies);
+    }
+
+    /**
+     * @param maxAttempts Attempts including the first call
+     * @param initialInterval Backoff before the first retry
+     * @param multiplier Growth of the backoff per retry; each backoff is randomized up to multiplier times its base
+     * @param maxInterval Cap on a single backoff
+     */
+    public record Policy(@DefaultValue("3") int maxAttempts,
+                         @DefaultValue("1s") Duration initialInterval,
+                         @DefaultValue("2.0") double multiplier,
+                         @DefaultValue("30s") Duration maxInterval) {
+    }
+}
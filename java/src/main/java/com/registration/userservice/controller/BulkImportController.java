@@ -0,0 +1,35 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.bulk.BulkImportService;
+import com.registration.userservice.bulk.ImportFormat;
+import com.registration.userservice.dto.BulkImportReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+
+/**
+ * Streams a CSV (text/csv) or NDJSON (application/x-ndjson) request body into the bulk importer.
+ * Only mapped when users.bulk-import.endpoint-enabled is true.
+ */
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "users.bulk-import.endpoint-enabled", havingValue = "true")
+public class BulkImportController {
+
+    private final BulkImportService bulkImportService;
+
+    @PostMapping(path = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public BulkImportReport importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                        InputStream body) throws IOException, SQLException {
+        return bulkImportService.importUsers(body, ImportFormat.fromContentType(contentType));
+    }
+}
@@ -0,0 +1,48 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.graph.FriendGraph;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Friend graph queries answered from the in-memory index. Every endpoint returns DNIs;
+ * 404 means a user is not indexed and 503 that the index is not loaded.
+ */
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class FriendGraphController {
+
+    private final FriendGraph friendGraph;
+
+    @GetMapping("/{dni}/network")
+    public ResponseEntity<int[]> neighbours(@PathVariable Integer dni, @RequestParam(defaultValue = "2") int hops) {
+        return query(() -> friendGraph.neighbours(dni, hops));
+    }
+
+    @GetMapping("/{dni}/mutual-friends/{otherDni}")
+    public ResponseEntity<int[]> mutualFriends(@PathVariable Integer dni, @PathVariable Integer otherDni) {
+        return query(() -> friendGraph.mutualFriends(dni, otherDni));
+    }
+
+    @GetMapping("/{dni}/path/{otherDni}")
+    public ResponseEntity<int[]> shortestPath(@PathVariable Integer dni, @PathVariable Integer otherDni) {
+        return query(() -> friendGraph.shortestPath(dni, otherDni));
+    }
+
+    private ResponseEntity<int[]> query(Supplier<Optional<int[]>> query) {
+        if (!friendGraph.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.of(query.get());
+    }
+}
@@ -0,0 +1,44 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.dto.FriendsPage;
+import com.registration.userservice.dto.UserResponse;
+import com.registration.userservice.service.UserQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class UserController {
+
+    private final UserQueryService userQueryService;
+
+    @GetMapping("/{dni}")
+    public ResponseEntity<UserResponse> findByDni(@PathVariable Integer dni) {
+        return ResponseEntity.of(userQueryService.findByDni(dni));
+    }
+
+    @GetMapping(params = "correo")
+    public ResponseEntity<UserResponse> findByCorreo(@RequestParam String correo) {
+        return ResponseEntity.of(userQueryService.findByCorreo(correo));
+    }
+
+    @GetMapping("/{dni}/friends")
+    public ResponseEntity<FriendsPage> findFriends(@PathVariable Integer dni,
+                                                   @RequestParam(required = false) Integer after,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.of(userQueryService.findFriends(dni, after, limit));
+    }
+
+    @GetMapping("/{dni}/friends/dnis")
+    public ResponseEntity<List<Integer>> findFriendDnis(@PathVariable Integer dni) {
+        return ResponseEntity.of(userQueryService.findFriendDnis(dni));
+    }
+}
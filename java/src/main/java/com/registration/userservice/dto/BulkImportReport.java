@@ -0,0 +1,27 @@
+package com.registration.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportReport {
+    private long rowsRead;
+
+    // Rows that failed to parse or validate; the first few are described in rejections
+    private long rowsRejected;
+    private long usersInserted;
+
+    // Valid rows whose DNI or email was already taken
+    private long duplicates;
+    private long friendshipsInserted;
+    private long elapsedMs;
+    private long rowsPerSecond;
+    private List<String> rejections;
+}
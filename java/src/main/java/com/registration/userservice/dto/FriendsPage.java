@@ -0,0 +1,19 @@
+package com.registration.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendsPage {
+    private List<UserResponse> friends;
+
+    // Pass as "after" to fetch the next page; null on the last page
+    private Integer nextAfter;
+}
@@ -0,0 +1,28 @@
+package com.registration.userservice.dto;
+
+import com.registration.userservice.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserResponse {
+    private Integer dni;
+    private String nombre;
+    private String correo;
+    private Integer telefono;
+
+    // The password (clave) is never exposed
+    public static UserResponse from(User user) {
+        return UserResponse.builder()
+                .dni(user.getDni())
+                .nombre(user.getNombre())
+                .correo(user.getCorreo())
+                .telefono(user.getTelefono())
+                .build();
+    }
+}
@@ -6,30 +6,42 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+    @UniqueConstraint(name = User.DNI_UNIQUE_CONSTRAINT, columnNames = "dni"),
+    @UniqueConstraint(name = User.CORREO_UNIQUE_CONSTRAINT, columnNames = "correo")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@EqualsAndHashCode(exclude = {"friends", "friendOf"})
-@ToString(exclude = {"friends", "friendOf"})
+@EqualsAndHashCode(exclude = "friends")
+@ToString(exclude = "friends")
 public class User {
 
+    public static final String DNI_UNIQUE_CONSTRAINT = "uk_users_dni";
+    public static final String CORREO_UNIQUE_CONSTRAINT = "uk_users_correo";
+    public static final String ID_SEQUENCE = "users_id_seq";
+    // Must match INCREMENT BY of users_id_seq
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence (see init-scripts/03-users-id-sequence.sql): ids are reserved 50 at a time,
+    // so inserts can be JDBC-batched instead of flushed one by one as with IDENTITY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "id")
     private Integer id;
 
     @Column(name = "nombre", length = 512)
     private String nombre;
 
-    @Column(name = "correo", length = 512, unique = true)
+    @Column(name = "correo", length = 512)
     private String correo;
 
     @Column(name = "clave")
     private Integer clave;
 
-    @Column(name = "dni", unique = true)
+    @Column(name = "dni")
     private Integer dni;
 
     @Column(name = "telefono")
@@ -44,17 +56,13 @@ public class User {
     @Builder.Default
     private Set<User> friends = new HashSet<>();
 
-    @ManyToMany(mappedBy = "friends")
-    @Builder.Default
-    private Set<User> friendOf = new HashSet<>();
-
+    // No mapped inverse side: keeping one in sync would load every follower of a popular user each
+    // time a registration names them as a friend. Who lists a user as a friend is a query on friend.friend_id
     public void addFriend(User friend) {
         friends.add(friend);
-        friend.friendOf.add(this);
     }
 
     public void removeFriend(User friend) {
         friends.remove(friend);
-        friend.friendOf.remove(this);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,308 @@
+package com.registration.userservice.graph;
+
+import com.registration.userservice.utils.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Directed friend graph in compressed sparse row layout.
+ * Users are numbered densely in insertion order; the friends of node n are
+ * {@code targets[offsets[n] .. offsets[n + 1])}, sorted by node number. Nodes can only be appended,
+ * which matches the friend table: a user's friends are written once, when the user registers.
+ * A friend that is not indexed yet gets a placeholder node, whose row is filled in when it registers.
+ * Queries take and return DNIs and return null for an unknown DNI. Not thread-safe.
+ */
+final class CsrGraph {
+
+    private int[] nodeDnis;
+    private int[] offsets;
+    private int[] targets;
+    private int nodeCount;
+    private final IntIntHashMap nodesByDni;
+    // Nodes added as somebody's friend that have not registered themselves yet
+    private final BitSet placeholders = new BitSet();
+
+    CsrGraph() {
+        this(new int[16], new int[17], new int[16], 0, new IntIntHashMap(16));
+    }
+
+    private CsrGraph(int[] nodeDnis, int[] offsets, int[] targets, int nodeCount, IntIntHashMap nodesByDni) {
+        this.nodeDnis = nodeDnis;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.nodeCount = nodeCount;
+        this.nodesByDni = nodesByDni;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int edgeCount() {
+        return offsets[nodeCount];
+    }
+
+    boolean contains(int dni) {
+        return nodesByDni.containsKey(dni);
+    }
+
+    long memoryBytes() {
+        return (long) (nodeDnis.length + offsets.length + targets.length) * Integer.BYTES + nodesByDni.memoryBytes()
+                + placeholders.size() / Byte.SIZE;
+    }
+
+    /**
+     * Appends a user and its friends. Friends that are not indexed yet are appended first as placeholders,
+     * without friends. A user already indexed as a placeholder keeps its node and gets its friends.
+     * @return Whether the user was added; false if it was already indexed with its own friends
+     */
+    boolean addUser(int dni, int[] friendDnis) {
+        int existing = nodesByDni.get(dni);
+        if (existing != IntIntHashMap.MISSING && !placeholders.get(existing)) {
+            return false;
+        }
+        int[] friendNodes = new int[friendDnis.length];
+        for (int i = 0; i < friendDnis.length; i++) {
+            int node = nodesByDni.get(friendDnis[i]);
+            if (node == IntIntHashMap.MISSING) {
+                node = appendNode(friendDnis[i], new int[0], 0);
+                placeholders.set(node);
+            }
+            friendNodes[i] = node;
+        }
+        Arrays.sort(friendNodes);
+        int distinct = 0;
+        for (int i = 0; i < friendNodes.length; i++) {
+            if (i == 0 || friendNodes[i] != friendNodes[i - 1]) {
+                friendNodes[distinct++] = friendNodes[i];
+            }
+        }
+        if (existing == IntIntHashMap.MISSING) {
+            appendNode(dni, friendNodes, distinct);
+        } else {
+            fillPlaceholder(existing, friendNodes, distinct);
+        }
+        return true;
+    }
+
+    /**
+     * @return DNIs reachable in 1 to hops steps, ascending, at most maxResults of them
+     */
+    int[] neighbours(int dni, int hops, int maxResults) {
+        int start = nodesByDni.get(dni);
+        if (start == IntIntHashMap.MISSING) {
+            return null;
+        }
+        IntIntHashMap seen = new IntIntHashMap(64);
+        seen.putIfAbsent(start, 0);
+        // BFS queue; every entry after the start node is a result
+        int[] queue = new int[16];
+        queue[0] = start;
+        int tail = 1;
+        int levelStart = 0;
+        search:
+        for (int hop = 1; hop <= hops; hop++) {
+            int levelEnd = tail;
+            for (int i = levelStart; i < levelEnd; i++) {
+                int node = queue[i];
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    if (seen.putIfAbsent(targets[e], hop)) {
+                        if (tail > maxResults) {
+                            break search;
+                        }
+                        queue = ensureCapacity(queue, tail + 1);
+                        queue[tail++] = targets[e];
+                    }
+                }
+            }
+            if (tail == levelEnd) {
+                break;
+            }
+            levelStart = levelEnd;
+        }
+        return sortedDnis(queue, 1, tail);
+    }
+
+    /**
+     * @return DNIs both users added as friends, ascending
+     */
+    int[] mutualFriends(int dni, int otherDni) {
+        int node = nodesByDni.get(dni);
+        int other = nodesByDni.get(otherDni);
+        if (node == IntIntHashMap.MISSING || other == IntIntHashMap.MISSING) {
+            return null;
+        }
+        // Both rows are sorted by node number, so a merge finds the intersection in one pass
+        int[] mutual = new int[Math.min(degree(node), degree(other))];
+        int count = 0;
+        int i = offsets[node];
+        int j = offsets[other];
+        while (i < offsets[node + 1] && j < offsets[other + 1]) {
+            if (targets[i] < targets[j]) {
+                i++;
+            } else if (targets[i] > targets[j]) {
+                j++;
+            } else {
+                mutual[count++] = targets[i];
+                i++;
+                j++;
+            }
+        }
+        return sortedDnis(mutual, 0, count);
+    }
+
+    /**
+     * @return DNIs along a shortest friend path, both ends included; empty if none is at most maxHops long
+     */
+    int[] shortestPath(int fromDni, int toDni, int maxHops) {
+        int from = nodesByDni.get(fromDni);
+        int to = nodesByDni.get(toDni);
+        if (from == IntIntHashMap.MISSING || to == IntIntHashMap.MISSING) {
+            return null;
+        }
+        if (from == to) {
+            return new int[]{fromDni};
+        }
+        // Maps each visited node to the node it was reached from
+        IntIntHashMap parents = new IntIntHashMap(64);
+        parents.putIfAbsent(from, from);
+        int[] queue = new int[16];
+        queue[0] = from;
+        int tail = 1;
+        int levelStart = 0;
+        for (int hop = 1; hop <= maxHops && levelStart < tail; hop++) {
+            int levelEnd = tail;
+            for (int i = levelStart; i < levelEnd; i++) {
+                int node = queue[i];
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    int next = targets[e];
+                    if (!parents.putIfAbsent(next, node)) {
+                        continue;
+                    }
+                    if (next == to) {
+                        return path(parents, from, to, hop);
+                    }
+                    queue = ensureCapacity(queue, tail + 1);
+                    queue[tail++] = next;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return new int[0];
+    }
+
+    private int[] path(IntIntHashMap parents, int from, int to, int hops) {
+        int[] path = new int[hops + 1];
+        int node = to;
+        for (int i = hops; i > 0; i--) {
+            path[i] = nodeDnis[node];
+            node = parents.get(node);
+        }
+        path[0] = nodeDnis[from];
+        return path;
+    }
+
+    private int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    private int[] sortedDnis(int[] nodes, int from, int to) {
+        int[] dnis = new int[to - from];
+        for (int i = from; i < to; i++) {
+            dnis[i - from] = nodeDnis[nodes[i]];
+        }
+        Arrays.sort(dnis);
+        return dnis;
+    }
+
+    private int appendNode(int dni, int[] friendNodes, int friendCount) {
+        int node = nodeCount;
+        int edges = offsets[node];
+        nodeDnis = ensureCapacity(nodeDnis, node + 1);
+        offsets = ensureCapacity(offsets, node + 2);
+        targets = ensureCapacity(targets, edges + friendCount);
+        System.arraycopy(friendNodes, 0, targets, edges, friendCount);
+        nodeDnis[node] = dni;
+        offsets[node + 1] = edges + friendCount;
+        nodesByDni.putIfAbsent(dni, node);
+        nodeCount++;
+        return node;
+    }
+
+    private void fillPlaceholder(int node, int[] friendNodes, int friendCount) {
+        // The row is empty and sits between other rows, so every later row moves up to make room.
+        // That costs a copy of the edges after it, paid only when a friend registers after being named
+        int end = offsets[node + 1];
+        int edges = offsets[nodeCount];
+        targets = ensureCapacity(targets, edges + friendCount);
+        System.arraycopy(targets, end, targets, end + friendCount, edges - end);
+        System.arraycopy(friendNodes, 0, targets, end, friendCount);
+        for (int n = node + 1; n <= nodeCount; n++) {
+            offsets[n] += friendCount;
+        }
+        placeholders.clear(node);
+    }
+
+    private static int[] ensureCapacity(int[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length + (array.length >> 1)));
+    }
+
+    /**
+     * Builds the graph from a full scan: every user first, then every friend row.
+     * Rows are bucketed by user with a counting sort, so no per-user collection is ever allocated.
+     */
+    static final class Builder {
+
+        private int[] nodeDnis = new int[1024];
+        private int nodeCount;
+        private final IntIntHashMap nodesByDni = new IntIntHashMap(1024);
+        private int[] edgeSources = new int[1024];
+        private int[] edgeTargets = new int[1024];
+        private int edgeCount;
+
+        void addUser(int dni) {
+            if (nodesByDni.putIfAbsent(dni, nodeCount)) {
+                nodeDnis = ensureCapacity(nodeDnis, nodeCount + 1);
+                nodeDnis[nodeCount++] = dni;
+            }
+        }
+
+        /**
+         * Adds a friend row; rows naming a user that was not added are skipped
+         * @return Whether the row was added
+         */
+        boolean addFriend(int userDni, int friendDni) {
+            int source = nodesByDni.get(userDni);
+            int target = nodesByDni.get(friendDni);
+            if (source == IntIntHashMap.MISSING || target == IntIntHashMap.MISSING) {
+                return false;
+            }
+            edgeSources = ensureCapacity(edgeSources, edgeCount + 1);
+            edgeTargets = ensureCapacity(edgeTargets, edgeCount + 1);
+            edgeSources[edgeCount] = source;
+            edgeTargets[edgeCount] = target;
+            edgeCount++;
+            return true;
+        }
+
+        CsrGraph build() {
+            int[] offsets = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offsets[edgeSources[e] + 1]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+            int[] targets = new int[Math.max(edgeCount, 1)];
+            int[] cursors = Arrays.copyOf(offsets, nodeCount);
+            for (int e = 0; e < edgeCount; e++) {
+                targets[cursors[edgeSources[e]]++] = edgeTargets[e];
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                Arrays.sort(targets, offsets[n], offsets[n + 1]);
+            }
+            return new CsrGraph(Arrays.copyOf(nodeDnis, Math.max(nodeCount, 1)), offsets, targets, nodeCount, nodesByDni);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.registration.userservice.graph;
+
+import com.registration.userservice.repository.FriendEdge;
+import com.registration.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the friend table for k-hop neighbours, mutual friends and shortest paths.
+ * Edges follow the friend table, from a user to the friends they added. The index is loaded once the
+ * application is ready and extended after every committed registration, so queries walk int arrays
+ * instead of running recursive SQL. Registrations made by other instances show up after a restart.
+ * Until loading finishes, or when disabled, {@link #isLoaded()} is false.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.friend-graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${users.friend-graph.max-hops:3}")
+    private int maxHops;
+
+    @Value("${users.friend-graph.max-results:10000}")
+    private int maxResults;
+
+    @Value("${users.friend-graph.max-path-hops:6}")
+    private int maxPathHops;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private CsrGraph graph = new CsrGraph();
+
+    // Registrations committed while the index loads, applied once it is in place
+    private final List<PendingUser> pending = new ArrayList<>();
+    private volatile boolean loaded;
+
+    @PostConstruct
+    void init() {
+        registerGauge("users.friend.graph.users", "Users in the friend graph index", CsrGraph::nodeCount);
+        registerGauge("users.friend.graph.friendships", "Friend rows in the friend graph index", CsrGraph::edgeCount);
+        Gauge.builder("users.friend.graph.memory", this, index -> index.read(CsrGraph::memoryBytes))
+                .description("Heap used by the friend graph arrays")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the index from every user and friend row
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            log.info("Friend graph disabled, graph queries are unavailable");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        try (Stream<Integer> dnis = userRepository.streamAllDnis()) {
+            dnis.forEach(builder::addUser);
+        }
+        try (Stream<FriendEdge> edges = userRepository.streamFriendEdges()) {
+            // Rows of users registered after the first scan are skipped; their registration is pending
+            edges.forEach(edge -> builder.addFriend(edge.userDni(), edge.friendDni()));
+        }
+        CsrGraph built = builder.build();
+
+        synchronized (pending) {
+            lock.writeLock().lock();
+            try {
+                pending.forEach(user -> built.addUser(user.dni(), user.friendDnis()));
+                graph = built;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            pending.clear();
+            loaded = true;
+        }
+        log.info("Loaded friend graph with {} users and {} friend rows in {} ms ({} KB)",
+                built.nodeCount(), built.edgeCount(), System.currentTimeMillis() - start, built.memoryBytes() / 1024);
+    }
+
+    /**
+     * Adds a newly persisted user and the DNIs of its friends. Inside a transaction the user is only
+     * added once it commits, so a rolled back batch leaves no trace in the index.
+     */
+    public void recordUser(Integer dni, int[] friendDnis) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addUser(dni, friendDnis);
+                }
+            });
+        } else {
+            addUser(dni, friendDnis);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param hops Steps to follow, capped at users.friend-graph.max-hops
+     * @return DNIs reachable from the user, ascending and capped at users.friend-graph.max-results,
+     * or empty if the user is not indexed
+     */
+    public Optional<int[]> neighbours(Integer dni, int hops) {
+        int steps = Math.max(1, Math.min(hops, maxHops));
+        return Optional.ofNullable(read(index -> index.neighbours(dni, steps, maxResults)));
+    }
+
+    /**
+     * @return DNIs both users added as friends, ascending, or empty if either user is not indexed
+     */
+    public Optional<int[]> mutualFriends(Integer dni, Integer otherDni) {
+        return Optional.ofNullable(read(index -> index.mutualFriends(dni, otherDni)));
+    }
+
+    /**
+     * @return DNIs along a shortest friend path from one user to the other, or an empty array if there is
+     * none within users.friend-graph.max-path-hops; empty if either user is not indexed
+     */
+    public Optional<int[]> shortestPath(Integer fromDni, Integer toDni) {
+        return Optional.ofNullable(read(index -> index.shortestPath(fromDni, toDni, maxPathHops)));
+    }
+
+    private void addUser(int dni, int[] friendDnis) {
+        synchronized (pending) {
+            if (!loaded) {
+                pending.add(new PendingUser(dni, friendDnis));
+                return;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            graph.addUser(dni, friendDnis);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Function<CsrGraph, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(graph);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void registerGauge(String name, String description, ToDoubleFunction<CsrGraph> value) {
+        Gauge.builder(name, this, index -> index.read(value::applyAsDouble))
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private record PendingUser(int dni, int[] friendDnis) {
+    }
+}
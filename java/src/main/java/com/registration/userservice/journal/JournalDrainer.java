@@ -0,0 +1,147 @@
+package com.registration.userservice.journal;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.KeyedRegistrationLocks;
+import com.registration.userservice.service.ProcessedRegistrations;
+import com.registration.userservice.service.RabbitMQPublisher;
+import com.registration.userservice.service.TransientPersistenceException;
+import com.registration.userservice.service.UserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background writer for the registration journal: persists journaled registrations in batches and
+ * publishes their responses. Starts once the application is ready, so registrations left over from
+ * a previous run are drained first.
+ * While the database is unreachable the records stay in the journal and are retried. Persistence takes
+ * the same DNI and email stripes as the listeners, which keep persisting when the journal is full.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JournalDrainer {
+
+    private final RegistrationJournal journal;
+    private final UserService userService;
+    private final RabbitMQPublisher rabbitMQPublisher;
+    private final ProcessedRegistrations processedRegistrations;
+    private final KeyedRegistrationLocks keyLocks;
+
+    @Value("${rabbitmq.journal.drain-batch-size:100}")
+    private int batchSize;
+
+    @Value("${rabbitmq.journal.drain-idle-ms:20}")
+    private long idleMs;
+
+    @Value("${rabbitmq.journal.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        running = true;
+        drainer = Thread.ofPlatform().name("journal-drainer").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            // Not interrupted: a batch in flight finishes, the rest stays journaled for the next start
+            drainer.join(10_000);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) {
+                    Thread.sleep(idleMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessResourceFailureException | CannotCreateTransactionException
+                     | TransientPersistenceException e) {
+                log.warn("Database unavailable, keeping journaled registrations for retry in {} ms: {}",
+                        retryDelayMs, e.getMessage());
+                sleepQuietly(retryDelayMs);
+            } catch (Exception e) {
+                log.error("Error draining registration journal, retrying in {} ms", retryDelayMs, e);
+                sleepQuietly(retryDelayMs);
+            }
+        }
+    }
+
+    /**
+     * Persists and publishes the next batch of journaled registrations. A registration that fails on a
+     * transient database error stays journaled, together with the ones after it, and the failure is
+     * rethrown once the registrations before it are drained.
+     * @return The number of registrations drained
+     */
+    int drainOnce() {
+        RegistrationJournal.Pending pending = journal.readPending(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<RegistrationRequest> requests = pending.requests();
+        List<PersistenceResponse> responses;
+        TransientPersistenceException stoppedAt = null;
+        try {
+            responses = keyLocks.withKeys(requests, () -> userService.persistUsers(requests));
+        } catch (DataAccessResourceFailureException | CannotCreateTransactionException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Batch persistence of {} journaled registrations failed, falling back to one by one",
+                    requests.size(), e);
+            responses = new ArrayList<>(requests.size());
+            for (RegistrationRequest request : requests) {
+                try {
+                    responses.add(keyLocks.withKeys(request, () -> userService.persistUser(request)));
+                } catch (TransientPersistenceException transientFailure) {
+                    // Journal order is kept: this one and the rest are retried from here on the next pass
+                    stoppedAt = transientFailure;
+                    break;
+                }
+            }
+        }
+        int drained = responses.size();
+        if (drained > 0) {
+            journal.markDrained(pending.endPosition(drained));
+        }
+
+        for (int i = 0; i < drained; i++) {
+            processedRegistrations.record(null, requests.get(i), responses.get(i));
+            rabbitMQPublisher.publishPersistenceResponse(responses.get(i));
+        }
+        if (stoppedAt != null) {
+            throw stoppedAt;
+        }
+        return drained;
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.registration.userservice.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of accepted registrations on a memory-mapped file, drained into the database
+ * by {@link JournalDrainer}. A registration is acknowledged to the broker once its record is forced
+ * to disk; concurrent appenders share one force (group commit).
+ * <p>
+ * Layout: a header with a magic number and the offset up to which records have been drained, then
+ * records of [length][crc32][JSON request], always followed by a zero length that marks the end.
+ * On startup the records after the drained offset are recovered up to the first torn or corrupt one.
+ * Once everything is drained, appending starts again from the top of the file.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationJournal {
+
+    private static final int MAGIC = 0x4C50314A;
+    private static final int DRAINED_OFFSET_POSITION = 8;
+    static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.journal.path:journal/registrations.journal}")
+    private String path;
+
+    @Value("${rabbitmq.journal.size-bytes:67108864}")
+    private int sizeBytes;
+
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private volatile int durablePosition;
+    private volatile int drainedPosition;
+    private Counter full;
+
+    /**
+     * Records appended but not yet drained, read up to a durable offset, with the offset right after
+     * each of them so a partially persisted batch can be marked drained up to where it stopped
+     */
+    public record Pending(List<RegistrationRequest> requests, int startPosition, int[] endPositions) {
+        public boolean isEmpty() {
+            return requests.isEmpty();
+        }
+
+        /**
+         * Offset right after the first count records
+         */
+        public int endPosition(int count) {
+            return count == 0 ? startPosition : endPositions[count - 1];
+        }
+
+        /**
+         * Offset right after the last record read
+         */
+        public int endPosition() {
+            return endPosition(requests.size());
+        }
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path file = Path.of(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Never map less than an existing journal, or pending records past the new size would be lost
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(sizeBytes, channel.size()));
+
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(DRAINED_OFFSET_POSITION, HEADER_BYTES);
+            buffer.putInt(HEADER_BYTES, 0);
+            buffer.force();
+        }
+        drainedPosition = (int) buffer.getLong(DRAINED_OFFSET_POSITION);
+        writePosition = recover(drainedPosition);
+        durablePosition = writePosition;
+
+        full = Counter.builder("registration.journal.full")
+                .description("Registrations persisted synchronously because the journal was full")
+                .register(meterRegistry);
+        Gauge.builder("registration.journal.pending.bytes", this, journal -> journal.durablePosition - journal.drainedPosition)
+                .description("Journaled registrations not yet drained into the database")
+                .register(meterRegistry);
+        log.info("Opened registration journal {} ({} MB), {} bytes pending from a previous run",
+                file, buffer.capacity() >> 20, writePosition - drainedPosition);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a registration and returns once it is on disk.
+     * @return false when the journal is disabled or full; the caller then persists synchronously
+     */
+    public boolean append(RegistrationRequest request) {
+        return appendAll(List.of(request)).isEmpty();
+    }
+
+    /**
+     * Appends registrations and returns once they are on disk, with a single force for all of them.
+     * @return The registrations that were not journaled because the journal is disabled or full
+     */
+    public List<RegistrationRequest> appendAll(List<RegistrationRequest> requests) {
+        if (!enabled) {
+            return requests;
+        }
+        List<RegistrationRequest> rejected = new ArrayList<>();
+        int end = 0;
+        for (RegistrationRequest request : requests) {
+            int recordEnd = write(serialize(request));
+            if (recordEnd < 0) {
+                full.increment();
+                rejected.add(request);
+            } else {
+                end = recordEnd;
+            }
+        }
+        awaitDurable(end);
+        return rejected;
+    }
+
+    private int write(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        synchronized (appendLock) {
+            int end = writePosition + RECORD_HEADER_BYTES + payload.length;
+            if (end + Integer.BYTES > buffer.capacity()) {
+                return -1;
+            }
+            buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+            buffer.put(writePosition + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(end, 0);
+            // Length last: until it is set the previous end marker still terminates the journal
+            buffer.putInt(writePosition, payload.length);
+            writePosition = end;
+            return end;
+        }
+    }
+
+    /**
+     * Reads up to maxRecords durable records that have not been drained yet
+     */
+    public Pending readPending(int maxRecords) {
+        List<RegistrationRequest> requests = new ArrayList<>();
+        int start = drainedPosition;
+        int durable = durablePosition;
+        int[] ends = new int[maxRecords];
+        int position = start;
+        while (position < durable && requests.size() < maxRecords) {
+            int length = buffer.getInt(position);
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            position += RECORD_HEADER_BYTES + length;
+            ends[requests.size()] = position;
+            requests.add(deserialize(payload));
+        }
+        return new Pending(requests, start, Arrays.copyOf(ends, requests.size()));
+    }
+
+    /**
+     * Marks the records before endPosition as persisted. Only the drainer calls this.
+     */
+    public void markDrained(int endPosition) {
+        synchronized (flushLock) {
+            synchronized (appendLock) {
+                if (endPosition == writePosition) {
+                    // Nothing pending: reuse the file from the top
+                    buffer.putInt(HEADER_BYTES, 0);
+                    writePosition = HEADER_BYTES;
+                    durablePosition = HEADER_BYTES;
+                    drainedPosition = HEADER_BYTES;
+                } else {
+                    drainedPosition = endPosition;
+                }
+                buffer.putLong(DRAINED_OFFSET_POSITION, drainedPosition);
+                buffer.force(0, HEADER_BYTES + Integer.BYTES);
+            }
+        }
+    }
+
+    private void awaitDurable(int end) {
+        if (durablePosition >= end) {
+            return;
+        }
+        synchronized (flushLock) {
+            // Another appender's force may already have covered this record
+            if (durablePosition >= end) {
+                return;
+            }
+            int from = durablePosition;
+            int target;
+            synchronized (appendLock) {
+                target = writePosition;
+            }
+            // Include the end marker so a recovered journal stops after the last record
+            buffer.force(from, target + Integer.BYTES - from);
+            durablePosition = target;
+        }
+    }
+
+    private int recover(int from) {
+        int position = from;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            int end = position + RECORD_HEADER_BYTES + length;
+            if (length <= 0 || end + Integer.BYTES > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                log.warn("Discarding torn journal record at offset {}", position);
+                break;
+            }
+            position = end;
+        }
+        buffer.putInt(position, 0);
+        return position;
+    }
+
+    private byte[] serialize(RegistrationRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal registration for DNI " + request.getDni(), e);
+        }
+    }
+
+    private RegistrationRequest deserialize(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, RegistrationRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journaled registration", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.registration.userservice.partition;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The LP1 nodes this node has heard from: each heartbeat refreshes a node, a leave notice or
+ * timeout-ms without a heartbeat removes it. The local node is always a member.
+ */
+public class PartitionMembership {
+
+    private final String localNode;
+    private final long timeoutMs;
+    private final Map<String, Long> lastSeen = new ConcurrentHashMap<>();
+
+    public PartitionMembership(String localNode, long timeoutMs) {
+        this.localNode = localNode;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return true if the node was not a member yet
+     */
+    public boolean heartbeat(String node, long nowMs) {
+        return lastSeen.put(node, nowMs) == null && !node.equals(localNode);
+    }
+
+    /**
+     * @return true if the node was a member
+     */
+    public boolean leave(String node) {
+        return !node.equals(localNode) && lastSeen.remove(node) != null;
+    }
+
+    /**
+     * Removes the nodes not heard from within the timeout
+     * @return true if any node was removed
+     */
+    public boolean expire(long nowMs) {
+        return lastSeen.entrySet().removeIf(entry ->
+                !entry.getKey().equals(localNode) && nowMs - entry.getValue() > timeoutMs);
+    }
+
+    public Set<String> members() {
+        Set<String> members = new TreeSet<>(lastSeen.keySet());
+        members.add(localNode);
+        return members;
+    }
+
+    public String localNode() {
+        return localNode;
+    }
+}
@@ -0,0 +1,351 @@
+package com.registration.userservice.partition;
+
+import com.rabbitmq.client.Channel;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.RabbitMQConsumer;
+import com.registration.userservice.service.RegistrationDeadlines;
+import com.registration.userservice.service.RegistrationLanes;
+import com.registration.userservice.service.RegistrationRetries;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitioned mode for several LP1 nodes, replacing the queue_lp1 listeners when
+ * rabbitmq.partitions.enabled is true. queue_lp1 is consumed by every node as a router only: each
+ * registration is republished unchanged to the shard queue of its DNI, and only acked once the broker
+ * confirms the republished copy, which needs spring.rabbitmq.publisher-confirm-type: correlated and
+ * spring.rabbitmq.publisher-returns: true. Confirms are awaited asynchronously, so routing is not
+ * limited to one broker round trip per registration. Shards are assigned to nodes
+ * with ShardAssignment over the members heard on the members exchange, and each node consumes just the
+ * shards it owns, so all messages for a DNI are handled by one node, one at a time.
+ * Shard queues are single-active-consumer: while ownership moves, the new owner's consumer only becomes
+ * active once the old owner has stopped its own.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rabbitmq.partitions.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class PartitionedConsumers {
+
+    static final String NODE_HEADER = "x-lp1-node";
+    static final String LEAVING_HEADER = "x-lp1-leaving";
+
+    private final SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final RabbitMQConsumer consumer;
+    private final Queue partitionMembersQueue;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.queues.persist}")
+    private String persistQueue;
+
+    @Value("${rabbitmq.routing-keys.persist}")
+    private String persistRoutingKey;
+
+    @Value("${rabbitmq.partitions.count:16}")
+    private int shards;
+
+    @Value("${rabbitmq.partitions.members-exchange:registro_bus.lp1.members}")
+    private String membersExchange;
+
+    @Value("${rabbitmq.partitions.heartbeat-ms:2000}")
+    private long heartbeatMs;
+
+    @Value("${rabbitmq.partitions.member-timeout-ms:6000}")
+    private long memberTimeoutMs;
+
+    @Value("${rabbitmq.partitions.node-id:}")
+    private String nodeId;
+
+    @Value("${rabbitmq.partitions.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${rabbitmq.partitions.confirm-window:250}")
+    private int confirmWindow;
+
+    private RabbitTemplate routingTemplate;
+    private PartitionMembership membership;
+    private final Map<Integer, SimpleMessageListenerContainer> shardContainers = new TreeMap<>();
+    private final List<SimpleMessageListenerContainer> containers = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile long startedAt;
+    private volatile boolean assigned;
+    private Counter routed;
+    private Counter rebalances;
+
+    @PostConstruct
+    void init() {
+        ConnectionFactory connectionFactory = rabbitTemplate.getConnectionFactory();
+        if (connectionFactory == null || !connectionFactory.isPublisherConfirms()
+                || !connectionFactory.isPublisherReturns()) {
+            // Without confirms and returns a registration the broker drops or cannot route would be lost,
+            // as the original is already acked
+            throw new IllegalStateException("Partitioned mode needs correlated publisher confirms and returns "
+                    + "(spring.rabbitmq.publisher-confirm-type: correlated, spring.rabbitmq.publisher-returns: true)");
+        }
+        // Mandatory whatever the shared template is configured with, so a missing shard queue is reported
+        routingTemplate = new RabbitTemplate(connectionFactory);
+        routingTemplate.setMandatory(true);
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = partitionMembersQueue.getActualName();
+        }
+        membership = new PartitionMembership(nodeId, memberTimeoutMs);
+        routed = Counter.builder("rabbitmq.partitions.routed")
+                .description("Registrations routed from queue_lp1 to their shard queue")
+                .register(meterRegistry);
+        rebalances = Counter.builder("rabbitmq.partitions.rebalances")
+                .description("Shard reassignments after a node joined or left")
+                .register(meterRegistry);
+        Gauge.builder("rabbitmq.partitions.owned", this, self -> self.ownedShards().size())
+                .description("Shards this node consumes")
+                .register(meterRegistry);
+        Gauge.builder("rabbitmq.partitions.members", this, self -> self.membership.members().size())
+                .description("LP1 nodes sharing the shards, this one included")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        startedAt = System.currentTimeMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lp1-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Acked from the confirm callbacks, so the prefetch bounds the registrations awaiting a confirm
+        SimpleMessageListenerContainer router = newContainer(persistQueue, (ChannelAwareMessageListener) this::route);
+        router.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        router.setPrefetchCount(confirmWindow);
+        containers.add(start(router));
+        containers.add(startContainer(partitionMembersQueue.getActualName(), this::onHeartbeat));
+        scheduler.scheduleAtFixedRate(this::tick, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("Partitioned mode: node {} routing {} into {} shards", nodeId, persistQueue, shards);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        synchronized (this) {
+            shardContainers.values().forEach(SimpleMessageListenerContainer::stop);
+            shardContainers.clear();
+        }
+        containers.forEach(SimpleMessageListenerContainer::stop);
+        // Lets the other nodes take over this node's shards without waiting for the member timeout
+        publishHeartbeat(true);
+    }
+
+    /**
+     * Republishes a queue_lp1 registration to the shard queue of its DNI; one without a DNI goes to
+     * shard 0, where validation answers it. Returns without waiting for the broker: the original is acked
+     * when the copy is confirmed, and nacked back onto queue_lp1 to be routed again when the copy is
+     * nacked, returned as unroutable, or not confirmed within confirm-timeout-ms. Up to confirm-window
+     * registrations are in flight at once.
+     */
+    void route(Message message, Channel channel) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        RegistrationRequest request;
+        try {
+            request = decode(message);
+        } catch (AmqpRejectAndDontRequeueException e) {
+            log.error("Rejecting registration message that cannot be routed: {}", e.getMessage());
+            settle(channel, deliveryTag, false, false);
+            return;
+        }
+        int shard = request.getDni() == null ? 0 : ShardAssignment.shardOf(request.getDni(), shards);
+        CorrelationData confirm = new CorrelationData();
+        try {
+            routingTemplate.send(exchangeName, ShardAssignment.shardRoutingKey(persistRoutingKey, shard), message, confirm);
+        } catch (AmqpException e) {
+            log.warn("Could not route registration to shard {}, requeueing it: {}", shard, e.getMessage());
+            settle(channel, deliveryTag, false, true);
+            return;
+        }
+        confirm.getFuture()
+                .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, failure) -> {
+                    String problem = failure != null ? "no confirm within " + confirmTimeoutMs + " ms"
+                            : !result.isAck() ? "nacked: " + result.getReason()
+                            : confirm.getReturned() != null ? "returned: " + confirm.getReturned().getReplyText()
+                            : null;
+                    if (problem == null) {
+                        routed.increment();
+                        settle(channel, deliveryTag, true, false);
+                    } else {
+                        log.warn("Registration routed to shard {} {}, requeueing it", shard, problem);
+                        settle(channel, deliveryTag, false, true);
+                    }
+                });
+    }
+
+    // Runs on the listener thread or on the connection thread that completed the confirm; if the channel
+    // closed meanwhile, the broker requeues the unacked original and the idempotency cache answers the copy
+    private void settle(Channel channel, long deliveryTag, boolean ack, boolean requeue) {
+        try {
+            if (ack) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, requeue);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not settle queue_lp1 delivery {}, the broker redelivers it: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    void onHeartbeat(Message message) {
+        Object node = message.getMessageProperties().getHeader(NODE_HEADER);
+        if (node == null) {
+            return;
+        }
+        boolean changed = Boolean.TRUE.equals(message.getMessageProperties().getHeader(LEAVING_HEADER))
+                ? membership.leave(node.toString())
+                : membership.heartbeat(node.toString(), System.currentTimeMillis());
+        if (changed) {
+            log.info("LP1 nodes sharing the shards: {}", membership.members());
+            scheduler.execute(this::rebalance);
+        }
+    }
+
+    private void tick() {
+        try {
+            publishHeartbeat(false);
+            long now = System.currentTimeMillis();
+            membership.heartbeat(nodeId, now);
+            boolean expired = membership.expire(now);
+            if (expired || !assigned) {
+                rebalance();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Partition heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized void rebalance() {
+        // The first assignment waits one heartbeat period, until the running nodes have been heard
+        if (!assigned && System.currentTimeMillis() - startedAt < heartbeatMs) {
+            return;
+        }
+        Set<Integer> owned = ShardAssignment.ownedBy(nodeId, membership.members(), shards);
+        if (assigned && owned.equals(shardContainers.keySet())) {
+            return;
+        }
+        shardContainers.entrySet().removeIf(entry -> {
+            if (owned.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().stop();
+            return true;
+        });
+        for (int shard : owned) {
+            shardContainers.computeIfAbsent(shard, s ->
+                    startContainer(ShardAssignment.shardQueue(persistQueue, s), this::consumeShard));
+        }
+        assigned = true;
+        rebalances.increment();
+        log.info("Node {} owns {} of {} shards: {}", nodeId, owned.size(), shards, owned);
+    }
+
+    // The router copies every header, so the lane arrives here; it is timed and retried under it, but a
+    // shard's registrations are never moved to the bulk lane (see RegistrationLanes)
+    void consumeShard(Message message) {
+        Object attempt = message.getMessageProperties().getHeader(RegistrationRetries.ATTEMPT_HEADER);
+        Object deadline = message.getMessageProperties().getHeader(RegistrationDeadlines.DEADLINE_HEADER);
+        Object lane = message.getMessageProperties().getHeader(RegistrationLanes.LANE_HEADER);
+        consumer.consumeRegistrationRequest(decode(message), message.getMessageProperties().getMessageId(),
+                attempt instanceof Integer value ? value : null,
+                deadline instanceof Number millis ? millis.longValue() : null,
+                lane == null ? null : lane.toString());
+    }
+
+    synchronized Set<Integer> ownedShards() {
+        return Set.copyOf(shardContainers.keySet());
+    }
+
+    private RegistrationRequest decode(Message message) {
+        message.getMessageProperties().setInferredArgumentType(RegistrationRequest.class);
+        try {
+            if (messageConverter.fromMessage(message) instanceof RegistrationRequest request) {
+                return request;
+            }
+        } catch (MessageConversionException e) {
+            throw new AmqpRejectAndDontRequeueException("Undecodable registration message", e);
+        }
+        throw new AmqpRejectAndDontRequeueException("Message is not a RegistrationRequest");
+    }
+
+    private void publishHeartbeat(boolean leaving) {
+        try {
+            rabbitTemplate.send(membersExchange, "", MessageBuilder.withBody(new byte[0])
+                    .setHeader(NODE_HEADER, nodeId)
+                    .setHeader(LEAVING_HEADER, leaving)
+                    // A heartbeat older than the timeout says nothing about the node
+                    .setExpiration(Long.toString(memberTimeoutMs))
+                    .build());
+        } catch (AmqpException e) {
+            log.warn("Could not publish partition heartbeat: {}", e.getMessage());
+        }
+    }
+
+    private SimpleMessageListenerContainer startContainer(String queue, MessageListener listener) {
+        return start(newContainer(queue, listener));
+    }
+
+    // One consumer per queue: shard queues allow a single active consumer anyway, and it keeps a DNI's
+    // registrations in order. No retry advice from the factory: a failed delivery is requeued right away
+    // instead of being retried on the consumer thread and then rejected
+    private SimpleMessageListenerContainer newContainer(String queue, MessageListener listener) {
+        SimpleMessageListenerContainer container = rabbitListenerContainerFactory.createListenerContainer();
+        container.setQueueNames(queue);
+        container.setConcurrentConsumers(1);
+        container.setMaxConcurrentConsumers(1);
+        container.setAdviceChain();
+        container.setMessageListener(listener);
+        return container;
+    }
+
+    private static SimpleMessageListenerContainer start(SimpleMessageListenerContainer container) {
+        container.afterPropertiesSet();
+        container.start();
+        return container;
+    }
+}
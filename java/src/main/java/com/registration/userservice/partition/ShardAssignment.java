@@ -0,0 +1,85 @@
+package com.registration.userservice.partition;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Placement of DNIs on shards and of shards on LP1 nodes. A DNI always maps to the same of the fixed
+ * number of shards; shards are spread over the live nodes by rendezvous hashing, so a node joining or
+ * leaving only moves the shards it gains or owned (about 1/nodes of them) and every node computes the
+ * same assignment from the same member list.
+ */
+public final class ShardAssignment {
+
+    private ShardAssignment() {
+    }
+
+    /**
+     * Shard of a DNI; the DNI is mixed first since sequential DNIs are the common case
+     */
+    public static int shardOf(int dni, int shards) {
+        return Math.floorMod(mix32(dni), shards);
+    }
+
+    public static String shardQueue(String persistQueue, int shard) {
+        return persistQueue + ".shard." + shard;
+    }
+
+    public static String shardRoutingKey(String persistRoutingKey, int shard) {
+        return persistRoutingKey + ".shard." + shard;
+    }
+
+    /**
+     * The node that owns a shard: the member with the highest weight for it, ties broken by node id
+     */
+    public static String ownerOf(int shard, Collection<String> members) {
+        String owner = null;
+        long ownerWeight = 0;
+        for (String member : members) {
+            long weight = weight(member, shard);
+            if (owner == null || weight > ownerWeight || (weight == ownerWeight && member.compareTo(owner) < 0)) {
+                owner = member;
+                ownerWeight = weight;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Shards a node owns among the given members, which should include the node itself
+     */
+    public static Set<Integer> ownedBy(String node, Collection<String> members, int shards) {
+        Set<Integer> owned = new TreeSet<>();
+        for (int shard = 0; shard < shards; shard++) {
+            if (node.equals(ownerOf(shard, members))) {
+                owned.add(shard);
+            }
+        }
+        return owned;
+    }
+
+    // String.hashCode is specified, so every JVM computes the same weights
+    private static long weight(String member, int shard) {
+        return mix64(((long) member.hashCode() << 32) | (shard & 0xFFFFFFFFL));
+    }
+
+    // MurmurHash3 finalizers
+    private static int mix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e884fL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
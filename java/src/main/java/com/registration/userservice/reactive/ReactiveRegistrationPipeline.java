@@ -0,0 +1,211 @@
+package com.registration.userservice.reactive;
+
+import com.rabbitmq.client.AMQP;
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.ProcessedRegistrations;
+import com.registration.userservice.service.RegistrationMetrics;
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import com.registration.userservice.service.RegistrationRetries;
+import com.registration.userservice.service.RegistrationValidator;
+import com.registration.userservice.utils.RetryUtil;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.CorrelableOutboundMessage;
+import reactor.rabbitmq.OutboundMessageResult;
+import reactor.rabbitmq.Receiver;
+import reactor.rabbitmq.Sender;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Reactive alternative to the RabbitMQConsumer listeners, active with the reactive profile: consumes
+ * queue_lp1, persists through R2DBC and publishes the lp1.persisted response without blocking a thread
+ * per registration. Backpressure runs from broker to database: the broker delivers at most prefetch
+ * unacked messages, and at most concurrency of them are being persisted at once.
+ * A delivery is acked only once the broker confirms its response, so a crash or a nacked response
+ * leads to a redelivery, which the idempotency cache answers. A transient database failure goes to the
+ * same delay queues as in the listeners. The write-behind journal is not used.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveRegistrationPipeline {
+
+    private final Receiver receiver;
+    private final Sender sender;
+    private final AmqpAdmin amqpAdmin;
+    private final MessageConverter messageConverter;
+    private final ReactiveUserWriter userWriter;
+    private final ProcessedRegistrations processedRegistrations;
+    private final RegistrationMetrics metrics;
+    private final RegistrationRetries retries;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    @Value("${rabbitmq.queues.persist}")
+    private String persistQueue;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routing-keys.persisted}")
+    private String persistedRoutingKey;
+
+    @Value("${rabbitmq.reactive.prefetch:50}")
+    private int prefetch;
+
+    @Value("${rabbitmq.reactive.concurrency:10}")
+    private int concurrency;
+
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Spring AMQP declares queues on its first connection, which this pipeline never opens
+        amqpAdmin.initialize();
+        subscription = sender.sendWithTypedPublishConfirms(receiver
+                        .consumeManualAck(persistQueue, new ConsumeOptions().qos(prefetch))
+                        .flatMap(this::process, concurrency))
+                .doOnNext(this::settle)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Reactive registration pipeline failed, resubscribing: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+        log.info("Reactive registration pipeline consuming {} (prefetch {}, concurrency {})",
+                persistQueue, prefetch, concurrency);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Handles one delivery up to the response to publish; a delivery that cannot be decoded is rejected
+     */
+    Mono<CorrelableOutboundMessage<AcknowledgableDelivery>> process(AcknowledgableDelivery delivery) {
+        Timer.Sample sample = Timer.start();
+        RegistrationRequest request;
+        try {
+            request = decode(delivery);
+        } catch (MessageConversionException e) {
+            log.error("Rejecting undecodable registration message: {}", e.getMessage());
+            metrics.recordOutcome(Outcome.INVALID_REQUEST);
+            delivery.nack(false);
+            sample.stop(metrics.consume(false));
+            return Mono.empty();
+        }
+        return respond(request, delivery)
+                .map(response -> reply(response, delivery))
+                .doFinally(signal -> sample.stop(metrics.consume(false)));
+    }
+
+    /**
+     * The response to publish for a registration; empty when a transient failure was handed to the
+     * delay queues, in which case the delivery is already acked
+     */
+    private Mono<PersistenceResponse> respond(RegistrationRequest request, AcknowledgableDelivery delivery) {
+        String messageId = delivery.getProperties().getMessageId();
+        log.debug("Received registration request for DNI: {}", request.getDni());
+        PersistenceResponse processed = processedRegistrations.replay(messageId, request);
+        if (processed != null) {
+            log.debug("Replaying response for already registered DNI: {}", request.getDni());
+            metrics.recordReplay();
+            return Mono.just(processed);
+        }
+        try {
+            metrics.validation().record(() -> RegistrationValidator.validate(request));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid registration request for DNI: {} - {}", request.getDni(), e.getMessage());
+            metrics.recordOutcome(Outcome.INVALID_REQUEST);
+            return Mono.just(ReactiveUserWriter.response(request.getDni(), "FAILED", "Invalid request: " + e.getMessage()));
+        }
+        return userWriter.persistUser(request)
+                .doOnNext(response -> processedRegistrations.record(messageId, request, response))
+                .onErrorResume(RetryUtil::isRetryableException, e -> retryLater(request, delivery, e))
+                .onErrorResume(e -> {
+                    log.error("Error processing registration request for DNI: {}", request.getDni(), e);
+                    return Mono.just(failed(request, e));
+                });
+    }
+
+    /**
+     * Hands a registration that failed on a transient database error to the delay queues, like the
+     * listeners do; the republish blocks, so it runs off the event loop
+     */
+    private Mono<PersistenceResponse> retryLater(RegistrationRequest request, AcknowledgableDelivery delivery,
+                                                 Throwable cause) {
+        Map<String, Object> headers = delivery.getProperties().getHeaders();
+        Integer attempt = headers != null && headers.get(RegistrationRetries.ATTEMPT_HEADER) instanceof Number number
+                ? number.intValue() : null;
+        return Mono.fromCallable(() -> retries.retry(request, delivery.getProperties().getMessageId(),
+                        attempt, headers, cause))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(scheduled -> {
+                    if (scheduled) {
+                        delivery.ack();
+                        return Mono.empty();
+                    }
+                    return Mono.just(failed(request, cause));
+                });
+    }
+
+    private PersistenceResponse failed(RegistrationRequest request, Throwable cause) {
+        metrics.recordOutcome(Outcome.ERROR);
+        return ReactiveUserWriter.response(request.getDni(), "FAILED", "Unexpected error: " + cause.getMessage());
+    }
+
+    private RegistrationRequest decode(AcknowledgableDelivery delivery) {
+        MessageProperties properties = propertiesConverter.toMessageProperties(
+                delivery.getProperties(), delivery.getEnvelope(), StandardCharsets.UTF_8.name());
+        properties.setInferredArgumentType(RegistrationRequest.class);
+        Object decoded = messageConverter.fromMessage(new Message(delivery.getBody(), properties));
+        if (!(decoded instanceof RegistrationRequest request)) {
+            throw new MessageConversionException("Expected a RegistrationRequest, got " + decoded);
+        }
+        return request;
+    }
+
+    private CorrelableOutboundMessage<AcknowledgableDelivery> reply(PersistenceResponse response,
+                                                                    AcknowledgableDelivery delivery) {
+        Message message = messageConverter.toMessage(response, new MessageProperties());
+        AMQP.BasicProperties properties = propertiesConverter.fromMessageProperties(
+                message.getMessageProperties(), StandardCharsets.UTF_8.name());
+        return new CorrelableOutboundMessage<>(exchangeName, persistedRoutingKey, properties, message.getBody(), delivery);
+    }
+
+    private void settle(OutboundMessageResult<CorrelableOutboundMessage<AcknowledgableDelivery>> result) {
+        AcknowledgableDelivery delivery = result.getOutboundMessage().getCorrelationMetadata();
+        if (result.isAck() && !result.isReturned()) {
+            delivery.ack();
+        } else {
+            log.warn("Response not confirmed by the broker, requeueing the registration");
+            delivery.nack(true);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.registration.userservice.reactive;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.entity.User;
+import com.registration.userservice.graph.FriendGraph;
+import com.registration.userservice.service.RegistrationMetrics;
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import com.registration.userservice.service.UserExistenceFilter;
+import com.registration.userservice.service.UserQueryService;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Non-blocking counterpart of UserService.persistUser over R2DBC: one optimistic insert of the user and
+ * one INSERT ... SELECT of its friend rows in a transaction. Duplicates are left to the unique
+ * constraints and answered with the same FAILED responses; the existence filter is only updated, since
+ * its possible-hit check is a blocking query.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+public class ReactiveUserWriter {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    static final String INSERT_USER = "INSERT INTO users (id, nombre, correo, clave, dni, telefono) "
+            + "VALUES (:id, :nombre, :correo, :clave, :dni, :telefono)";
+
+    // Links the friends that exist and returns their DNIs
+    static final String INSERT_FRIENDS = """
+            WITH found AS (SELECT id, dni FROM users WHERE dni = ANY(:friendDnis)),
+                 linked AS (INSERT INTO friend (user_id, friend_id) SELECT :userId, id FROM found ON CONFLICT DO NOTHING)
+            SELECT dni FROM found""";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final SequenceIdAllocator idAllocator;
+    private final UserExistenceFilter existenceFilter;
+    private final UserQueryService userQueryService;
+    private final FriendGraph friendGraph;
+    private final RegistrationMetrics metrics;
+
+    public ReactiveUserWriter(DatabaseClient databaseClient, ConnectionPool r2dbcConnectionFactory,
+                              UserExistenceFilter existenceFilter, UserQueryService userQueryService,
+                              FriendGraph friendGraph, RegistrationMetrics metrics) {
+        this.databaseClient = databaseClient;
+        // Not a bean: a ReactiveTransactionManager in the context would displace the JPA transaction manager
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(r2dbcConnectionFactory));
+        this.idAllocator = new SequenceIdAllocator(() -> databaseClient
+                .sql("SELECT nextval('" + User.ID_SEQUENCE + "')")
+                .map(row -> row.get(0, Long.class))
+                .one(), User.ID_ALLOCATION_SIZE);
+        this.existenceFilter = existenceFilter;
+        this.userQueryService = userQueryService;
+        this.friendGraph = friendGraph;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Persists one validated registration
+     * @return The response to publish; a database error other than a duplicate is signalled as an error
+     */
+    public Mono<PersistenceResponse> persistUser(RegistrationRequest request) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start();
+            return idAllocator.nextId()
+                    .flatMap(id -> insertUser(id, request)
+                            .then(linkFriends(id, request.getFriendsDni()))
+                            .as(transactionalOperator::transactional))
+                    .map(friendDnis -> registered(request, friendDnis))
+                    .onErrorResume(DataIntegrityViolationException.class,
+                            e -> translateConstraintViolation(request, e))
+                    .doFinally(signal -> sample.stop(metrics.persist(false)));
+        });
+    }
+
+    private Mono<Long> insertUser(int id, RegistrationRequest request) {
+        return databaseClient.sql(INSERT_USER)
+                .bind("id", id)
+                .bind("nombre", request.getNombre())
+                .bind("correo", request.getCorreo())
+                .bind("clave", request.getClave())
+                .bind("dni", request.getDni())
+                .bind("telefono", request.getTelefono())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<int[]> linkFriends(int userId, List<Integer> friendsDni) {
+        if (friendsDni == null || friendsDni.isEmpty()) {
+            return Mono.just(new int[0]);
+        }
+        Integer[] requested = friendsDni.stream().distinct().toArray(Integer[]::new);
+        return databaseClient.sql(INSERT_FRIENDS)
+                .bind("friendDnis", requested)
+                .bind("userId", userId)
+                .map(row -> row.get("dni", Integer.class))
+                .all()
+                .collectList()
+                .map(found -> {
+                    metrics.recordFriends(found.size(), requested.length - found.size());
+                    if (found.size() < requested.length) {
+                        log.warn("Could not add {} of {} friends of user {} - users not found",
+                                requested.length - found.size(), requested.length, userId);
+                    }
+                    return found.stream().mapToInt(Integer::intValue).toArray();
+                });
+    }
+
+    private PersistenceResponse registered(RegistrationRequest request, int[] friendDnis) {
+        existenceFilter.recordUser(request.getDni(), request.getCorreo());
+        userQueryService.evict(request.getDni(), request.getCorreo());
+        friendGraph.recordUser(request.getDni(), friendDnis);
+        log.debug("User created successfully with DNI: {}", request.getDni());
+        metrics.recordOutcome(Outcome.REGISTERED);
+        return response(request.getDni(), "SUCCESS", "User registered successfully with DNI: " + request.getDni());
+    }
+
+    private Mono<PersistenceResponse> translateConstraintViolation(RegistrationRequest request,
+                                                                   DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        String constraint = message == null ? "" : message.toLowerCase(Locale.ROOT);
+
+        if (constraint.contains(User.DNI_UNIQUE_CONSTRAINT)) {
+            log.debug("User with DNI {} already exists", request.getDni());
+            metrics.recordOutcome(Outcome.DUPLICATE_DNI);
+            return Mono.just(response(request.getDni(), "FAILED",
+                    "User with DNI " + request.getDni() + " already exists"));
+        }
+        if (constraint.contains(User.CORREO_UNIQUE_CONSTRAINT)) {
+            log.debug("User with email {} already exists", request.getCorreo());
+            metrics.recordOutcome(Outcome.DUPLICATE_EMAIL);
+            return Mono.just(response(request.getDni(), "FAILED",
+                    "User with email " + request.getCorreo() + " already exists"));
+        }
+        return Mono.error(e);
+    }
+
+    static PersistenceResponse response(Integer dni, String status, String message) {
+        return PersistenceResponse.builder()
+                .dni(dni)
+                .status(status)
+                .message(message)
+                .timestamp(LocalDateTime.now().format(TIMESTAMP_FORMATTER))
+                .build();
+    }
+}
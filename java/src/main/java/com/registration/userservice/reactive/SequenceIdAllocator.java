@@ -0,0 +1,52 @@
+package com.registration.userservice.reactive;
+
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out user ids from blocks of a pooled sequence, like Hibernate's pooled optimizer: each
+ * nextval returns the last id of a block of blockSize ids, so one round trip serves blockSize users.
+ * Concurrent callers that find the block used up may each fetch a new one; the spare block is
+ * dropped, which only leaves a gap in the ids.
+ */
+public class SequenceIdAllocator {
+
+    private final Supplier<Mono<Long>> nextBlockEnd;
+    private final int blockSize;
+    private long next = 1;
+    private long last;
+
+    /**
+     * @param nextBlockEnd Fetches the next sequence value, the last id of a fresh block
+     */
+    public SequenceIdAllocator(Supplier<Mono<Long>> nextBlockEnd, int blockSize) {
+        this.nextBlockEnd = nextBlockEnd;
+        this.blockSize = blockSize;
+    }
+
+    public Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            Integer id = take();
+            if (id != null) {
+                return Mono.just(id);
+            }
+            return nextBlockEnd.get().map(this::takeFromNewBlock);
+        });
+    }
+
+    private synchronized Integer take() {
+        return next <= last ? Math.toIntExact(next++) : null;
+    }
+
+    private synchronized int takeFromNewBlock(long blockEnd) {
+        Integer id = take();
+        if (id != null) {
+            // Another caller installed a block first
+            return id;
+        }
+        next = blockEnd - blockSize + 1;
+        last = blockEnd;
+        return take();
+    }
+}
@@ -0,0 +1,7 @@
+package com.registration.userservice.repository;
+
+/**
+ * One row of the friend table, by DNI: userDni added friendDni as a friend
+ */
+public record FriendEdge(int userDni, int friendDni) {
+}
@@ -1,6 +1,8 @@
 package com.registration.userservice.repository;
 
+import com.registration.userservice.dto.UserResponse;
 import com.registration.userservice.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
@@ -26,9 +29,32 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.friends WHERE u.dni = :dni")
     Optional<User> findByDniWithFriends(@Param("dni") Integer dni);
 
-    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.friends WHERE u.dni IN :dnis")
-    List<User> findByDniInWithFriends(@Param("dnis") List<Integer> dnis);
-
     @Query("SELECT u FROM User u WHERE u.dni IN :dnis")
     List<User> findByDniIn(@Param("dnis") List<Integer> dnis);
+
+    @Query("SELECT u.dni FROM User u WHERE u.dni IN :dnis")
+    List<Integer> findExistingDnis(@Param("dnis") List<Integer> dnis);
+
+    @Query("SELECT u.correo FROM User u WHERE u.correo IN :correos")
+    List<String> findExistingCorreos(@Param("correos") List<String> correos);
+
+    @Query("SELECT f.dni FROM User u JOIN u.friends f WHERE u.dni = :dni ORDER BY f.dni")
+    List<Integer> findFriendDnis(@Param("dni") Integer dni);
+
+    /**
+     * One keyset page of a user's friends: the first {@code limit} friends with a DNI greater than
+     * {@code afterDni}, ordered by DNI. Projected straight into DTOs, so no friend entity is managed.
+     */
+    @Query("SELECT new com.registration.userservice.dto.UserResponse(f.dni, f.nombre, f.correo, f.telefono) "
+            + "FROM User u JOIN u.friends f WHERE u.dni = :dni AND f.dni > :afterDni ORDER BY f.dni")
+    List<UserResponse> findFriendsPage(@Param("dni") Integer dni, @Param("afterDni") Integer afterDni, Limit limit);
+
+    @Query("SELECT u.dni FROM User u")
+    Stream<Integer> streamAllDnis();
+
+    @Query("SELECT u.correo FROM User u")
+    Stream<String> streamAllCorreos();
+
+    @Query("SELECT new com.registration.userservice.repository.FriendEdge(u.dni, f.dni) FROM User u JOIN u.friends f")
+    Stream<FriendEdge> streamFriendEdges();
 } 
\ No newline at end of file
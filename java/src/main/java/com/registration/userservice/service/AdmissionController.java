@@ -0,0 +1,232 @@
+package com.registration.userservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the queue_lp1 listener from taking more work than PostgreSQL can absorb. Every interval the
+ * Hikari connection wait and the persistUser latency of the last interval are compared with their
+ * targets: above either, consumer concurrency and prefetch shrink multiplicatively; below both, with
+ * traffic, they grow by one (AIMD). Traffic is any sample on either timer: the batch listener records no
+ * persistUser samples, so there the connection wait alone drives the limits. Unacked messages then stay
+ * in the broker instead of queueing in memory for a connection.
+ * Between adjustments the listener asks admit() before each delivery; while as many threads wait for a
+ * connection as the pool holds, the delivery is held for up to admit-wait-ms and then rejected and
+ * requeued, so latency stays bounded rather than every in-flight registration timing out together.
+ * Prefetch changes apply to consumers started after the change.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdmissionController {
+
+    private static final long ADMIT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final DataSource dataSource;
+    private final RabbitListenerEndpointRegistry endpointRegistry;
+    private final RegistrationMetrics metrics;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.admission.target-acquire-ms:50}")
+    private double targetAcquireMs;
+
+    @Value("${rabbitmq.admission.target-persist-ms:250}")
+    private double targetPersistMs;
+
+    @Value("${rabbitmq.admission.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${rabbitmq.admission.admit-wait-ms:100}")
+    private long admitWaitMs;
+
+    @Value("${rabbitmq.listener.concurrency:1}")
+    private int initialConcurrency;
+
+    @Value("${rabbitmq.listener.max-concurrency:1}")
+    private int maxConcurrency;
+
+    @Value("${rabbitmq.listener.prefetch:250}")
+    private int maxPrefetch;
+
+    private HikariDataSource hikari;
+    private volatile Limits limits;
+    private volatile boolean saturated;
+    private final Window acquireWindow = new Window();
+    private final Window persistWindow = new Window();
+    private Counter rejected;
+
+    /**
+     * Consumer count and per-consumer prefetch of the registration listener
+     */
+    record Limits(int concurrency, int prefetch) {
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        hikari = hikariDataSource(dataSource);
+        if (hikari == null) {
+            log.warn("Admission control needs a Hikari connection pool, disabling it");
+            enabled = false;
+            return;
+        }
+        maxConcurrency = Math.max(initialConcurrency, maxConcurrency);
+        minConcurrency = Math.min(Math.max(1, minConcurrency), maxConcurrency);
+        limits = new Limits(initialConcurrency, maxPrefetch);
+        rejected = Counter.builder("registration.admission.rejected")
+                .description("Deliveries requeued because the connection pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("registration.admission.concurrency", this, self -> self.limits.concurrency())
+                .description("Listener consumers allowed by admission control")
+                .register(meterRegistry);
+        Gauge.builder("registration.admission.prefetch", this, self -> self.limits.prefetch())
+                .description("Per-consumer prefetch allowed by admission control")
+                .register(meterRegistry);
+        Gauge.builder("registration.admission.saturated", this, self -> self.saturated ? 1 : 0)
+                .description("1 while the last interval was over the connection wait or latency target")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the listener may start on a delivery; waits up to admit-wait-ms for the pool to drain
+     * @return false if the delivery should be requeued
+     */
+    public boolean admit() {
+        if (!enabled || !poolExhausted()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(admitWaitMs);
+        while (poolExhausted()) {
+            if (System.nanoTime() >= deadline) {
+                rejected.increment();
+                return false;
+            }
+            LockSupport.parkNanos(ADMIT_POLL_NANOS);
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.admission.interval-ms:1000}",
+            initialDelayString = "${rabbitmq.admission.interval-ms:1000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+        SimpleMessageListenerContainer container = runningContainer();
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        double acquireMs = acquire == null ? Double.NaN : acquireWindow.meanMs(acquire);
+        double persistMs = persistWindow.meanMs(metrics.persist(false));
+        if (container == null) {
+            return;
+        }
+        Limits current = limits;
+        Limits next = next(current, acquireMs, persistMs, waitingThreads());
+        if (!next.equals(current)) {
+            apply(container, current, next);
+            log.info("Admission control: {} consumers, prefetch {} (connection wait {} ms, persist {} ms)",
+                    next.concurrency(), next.prefetch(), Math.round(acquireMs), Math.round(persistMs));
+        }
+    }
+
+    /**
+     * The limits for the next interval; NaN means no sample in the last interval.
+     * persistMs is only sampled by the single-message listener, a batch's persist time grows with its size
+     */
+    Limits next(Limits current, double acquireMs, double persistMs, int waitingThreads) {
+        saturated = (waitingThreads > 0 && acquireMs > targetAcquireMs) || persistMs > targetPersistMs;
+        if (saturated) {
+            int concurrency = Math.max(minConcurrency, current.concurrency() - Math.max(1, current.concurrency() / 4));
+            return new Limits(concurrency, Math.max(1, current.prefetch() / 2));
+        }
+        if (Double.isNaN(acquireMs) && Double.isNaN(persistMs)) {
+            return current;
+        }
+        return new Limits(Math.min(maxConcurrency, current.concurrency() + 1),
+                Math.min(maxPrefetch, current.prefetch() + 1));
+    }
+
+    private void apply(SimpleMessageListenerContainer container, Limits current, Limits next) {
+        // The listener's own scaling between concurrency and max-concurrency is replaced by this one
+        if (next.concurrency() > current.concurrency()) {
+            container.setMaxConcurrentConsumers(next.concurrency());
+            container.setConcurrentConsumers(next.concurrency());
+        } else {
+            container.setConcurrentConsumers(next.concurrency());
+            container.setMaxConcurrentConsumers(next.concurrency());
+        }
+        container.setPrefetchCount(next.prefetch());
+        limits = next;
+    }
+
+    private boolean poolExhausted() {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        return pool != null && pool.getThreadsAwaitingConnection() >= hikari.getMaximumPoolSize();
+    }
+
+    private int waitingThreads() {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    private SimpleMessageListenerContainer runningContainer() {
+        for (String id : new String[] {RabbitMQConsumer.LISTENER_ID, RabbitMQConsumer.BATCH_LISTENER_ID}) {
+            MessageListenerContainer container = endpointRegistry.getListenerContainer(id);
+            if (container instanceof SimpleMessageListenerContainer simple && simple.isRunning()) {
+                return simple;
+            }
+        }
+        return null;
+    }
+
+    private static HikariDataSource hikariDataSource(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari;
+        }
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mean of a cumulative timer over the samples recorded since the previous call
+     */
+    private static final class Window {
+        private long lastCount;
+        private double lastTotalMs;
+
+        double meanMs(Timer timer) {
+            long count = timer.count();
+            double totalMs = timer.totalTime(TimeUnit.MILLISECONDS);
+            long samples = count - lastCount;
+            double mean = samples > 0 ? (totalMs - lastTotalMs) / samples : Double.NaN;
+            lastCount = count;
+            lastTotalMs = totalMs;
+            return mean;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the persistence of registrations that share a DNI or an email, while unrelated ones run
+ * in parallel on the listener threads. Each registration takes the lock stripe of its DNI and the one of
+ * its email, always in stripe order so two registrations cannot deadlock. The second of two concurrent
+ * duplicates therefore runs after the first has committed and recorded the user in the existence filter,
+ * and is answered as a duplicate without a failed insert. A batch takes the stripes of all its registrations
+ * the same way, in one ascending pass.
+ * ReentrantLock rather than synchronized, so virtual-thread listeners waiting on a stripe do not pin
+ * their carrier. Unrelated keys sharing a stripe only wait for each other; the stripe count keeps that rare.
+ */
+@Component
+public class KeyedRegistrationLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final Counter contended;
+    private final Timer waits;
+
+    public KeyedRegistrationLocks(@Value("${rabbitmq.listener.key-stripes:1024}") int stripeCount,
+                                  MeterRegistry meterRegistry) {
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+        contended = Counter.builder("registration.key.locks.contended")
+                .description("Registrations that waited for another one with the same DNI or email stripe")
+                .register(meterRegistry);
+        waits = Timer.builder("registration.key.locks.wait")
+                .description("Time waited for a contended DNI or email stripe")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action holding the stripes of the registration's DNI and email
+     */
+    public <T> T withKeys(RegistrationRequest request, Supplier<T> action) {
+        return withKeys(List.of(request), action);
+    }
+
+    /**
+     * Runs the action holding the stripes of every registration's DNI and email, for a batch
+     * persisted in one transaction
+     */
+    public <T> T withKeys(Collection<RegistrationRequest> requests, Supplier<T> action) {
+        BitSet keyStripes = new BitSet(stripes.length);
+        for (RegistrationRequest request : requests) {
+            keyStripes.set(stripe(request.getDni() == null ? 0 : request.getDni()));
+            keyStripes.set(stripe(request.getCorreo() == null ? 0 : request.getCorreo().hashCode()));
+        }
+        // Ascending stripe order, the same for every caller
+        int[] ordered = keyStripes.stream().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : ordered) {
+                lock(stripes[stripe]);
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[ordered[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Number of stripes, a power of two
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    int stripe(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void lock(ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        contended.increment();
+        long start = System.nanoTime();
+        lock.lock();
+        waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
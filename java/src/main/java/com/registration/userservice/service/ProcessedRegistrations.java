@@ -0,0 +1,73 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.utils.ExpiringCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recently registered users, so a redelivered registration gets the original SUCCESS response
+ * instead of running persistUser again and failing with "already exists".
+ * Entries are keyed by the AMQP message id when the producer sets one, otherwise by DNI; a DNI
+ * entry only matches an identical request, so a different registration for a taken DNI still fails.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessedRegistrations {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.idempotency.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${rabbitmq.idempotency.ttl-ms:600000}")
+    private long ttlMs;
+
+    private ExpiringCache<String, Processed> processed;
+
+    @PostConstruct
+    void init() {
+        processed = new ExpiringCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("registration.idempotency.entries", this, registrations -> registrations.processed.size())
+                .description("Registrations remembered for redelivery")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param messageId The AMQP message id, or null if the producer did not set one
+     * @return The response already sent for this registration, or null if it has to be processed
+     */
+    public PersistenceResponse replay(String messageId, RegistrationRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        Processed entry = processed.get(key(messageId, request));
+        return entry != null && entry.request().equals(request) ? entry.response() : null;
+    }
+
+    /**
+     * Remembers a successful registration; failures are not cached so a redelivery retries them
+     */
+    public void record(String messageId, RegistrationRequest request, PersistenceResponse response) {
+        if (enabled && "SUCCESS".equals(response.getStatus())) {
+            processed.put(key(messageId, request), new Processed(request, response));
+        }
+    }
+
+    private static String key(String messageId, RegistrationRequest request) {
+        return messageId != null ? "id:" + messageId : "dni:" + request.getDni();
+    }
+
+    private record Processed(RegistrationRequest request, PersistenceResponse response) {
+    }
+}
@@ -2,26 +2,109 @@ package com.registration.userservice.service;
 
 import com.registration.userservice.dto.PersistenceResponse;
 import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.journal.RegistrationJournal;
+import com.registration.userservice.service.RegistrationLanes.Lane;
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RabbitMQConsumer {
 
+    public static final String LISTENER_ID = "registration";
+    public static final String BATCH_LISTENER_ID = "registration-batch";
+    public static final String BULK_LISTENER_ID = "registration-bulk";
+
     private final UserService userService;
     private final RabbitMQPublisher rabbitMQPublisher;
+    private final RegistrationMetrics metrics;
+    private final ProcessedRegistrations processedRegistrations;
+    private final RegistrationJournal journal;
+    private final RegistrationRetries retries;
+    private final KeyedRegistrationLocks keyLocks;
+    private final AdmissionController admission;
+    private final RegistrationDeadlines deadlines;
+    private final RegistrationLanes lanes;
+
+    @RabbitListener(id = LISTENER_ID, queues = "${rabbitmq.queues.persist}",
+            autoStartup = "#{${rabbitmq.listener.auto-startup:true} && !${rabbitmq.partitions.enabled:false}"
+                    + " && !${rabbitmq.listener.batch.enabled:false}}")
+    public void consumeRegistrationRequest(RegistrationRequest request,
+                                           @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                                           @Header(name = RegistrationRetries.ATTEMPT_HEADER, required = false) Integer attempt,
+                                           @Header(name = RegistrationDeadlines.DEADLINE_HEADER, required = false) Long deadline,
+                                           @Header(name = RegistrationLanes.LANE_HEADER, required = false) String lane) {
+        // Nobody waits for the response any more: acked and dropped, even while the database is saturated
+        if (deadlines.expired(deadline, request.getDni())) {
+            return;
+        }
+        // A bulk registration waits in the bulk lane instead of ahead of the interactive ones behind it
+        Map<String, Object> headers = carriedHeaders(deadline, lane);
+        if (lanes.divert(request, messageId, attempt, headers)) {
+            return;
+        }
+        // Lanes disabled: processed here, but still timed under the lane it was tagged with
+        process(request, messageId, attempt, headers, Lane.of(lane));
+    }
 
-    @RabbitListener(queues = "${rabbitmq.queues.persist}")
-    public void consumeRegistrationRequest(RegistrationRequest request) {
-        log.info("Received registration request for DNI: {}", request.getDni());
+    /**
+     * Listener of the bulk lane, active when rabbitmq.lanes.enabled is true. Same processing as
+     * {@link #consumeRegistrationRequest}, on the fewer consumers of bulkListenerContainerFactory.
+     */
+    @RabbitListener(id = BULK_LISTENER_ID, queues = "${rabbitmq.queues.bulk:queue_lp1.bulk}",
+            containerFactory = "bulkListenerContainerFactory",
+            autoStartup = "#{${rabbitmq.listener.auto-startup:true} && ${rabbitmq.lanes.enabled:false}"
+                    + " && !${rabbitmq.partitions.enabled:false}}")
+    public void consumeBulkRegistration(RegistrationRequest request,
+                                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                                        @Header(name = RegistrationRetries.ATTEMPT_HEADER, required = false) Integer attempt,
+                                        @Header(name = RegistrationDeadlines.DEADLINE_HEADER, required = false) Long deadline) {
+        if (deadlines.expired(deadline, request.getDni())) {
+            return;
+        }
+        // Retries come back through queue_lp1, so the lane goes with them
+        process(request, messageId, attempt, carriedHeaders(deadline, Lane.BULK.tag()), Lane.BULK);
+    }
+
+    private void process(RegistrationRequest request, String messageId, Integer attempt,
+                         Map<String, Object> headers, Lane lane) {
+        // Back to the queue while the database is saturated, before any work is done
+        if (!admission.admit()) {
+            throw new ImmediateRequeueAmqpException("Connection pool saturated, requeueing registration for DNI: "
+                    + request.getDni());
+        }
+        Timer.Sample sample = Timer.start();
+        log.debug("Received registration request for DNI: {}", request.getDni());
         
         try {
+            // A redelivery of a registration that already succeeded gets the original response
+            PersistenceResponse processed = processedRegistrations.replay(messageId, request);
+            if (processed != null) {
+                log.debug("Replaying response for already registered DNI: {}", request.getDni());
+                metrics.recordReplay();
+                rabbitMQPublisher.publishPersistenceResponse(processed);
+                return;
+            }
+
+
             // Validate the incoming request
-            validateRequest(request);
+            metrics.validation().record(() -> validateRequest(request));
             
             // Log the request details
             log.debug("Processing registration for user: {} with email: {}", 
@@ -31,49 +114,185 @@ public class RabbitMQConsumer {
                 log.debug("User has {} friends to register", request.getFriendsDni().size());
             }
             
-            // Persist the user using UserService
-            PersistenceResponse response = userService.persistUser(request);
+            // In write-behind mode the message is acked once journaled; the drainer persists and responds
+            if (journal.append(request)) {
+                log.debug("Journaled registration for DNI: {}", request.getDni());
+                return;
+            }
+
+            // Persist the user using UserService, after any in-flight registration with the same DNI or email
+            PersistenceResponse response;
+            try {
+                response = keyLocks.withKeys(request, () -> userService.persistUser(request));
+            } catch (TransientPersistenceException e) {
+                // A delayed retry goes through the delay queues; the response waits for its outcome
+                if (retries.retry(request, messageId, attempt, headers, e)) {
+                    return;
+                }
+                metrics.recordOutcome(Outcome.ERROR);
+                response = e.getResponse();
+            }
+            processedRegistrations.record(messageId, request, response);
             
             // Publish the response to RabbitMQ
             rabbitMQPublisher.publishPersistenceResponse(response);
             
             if ("SUCCESS".equals(response.getStatus())) {
-                log.info("Successfully persisted user with DNI: {}", request.getDni());
+                log.debug("Successfully persisted user with DNI: {}", request.getDni());
             } else {
-                log.warn("Failed to persist user with DNI: {} - Reason: {}", 
+                log.debug("Failed to persist user with DNI: {} - Reason: {}", 
                         request.getDni(), response.getMessage());
             }
             
         } catch (IllegalArgumentException e) {
             log.error("Invalid registration request for DNI: {} - {}", 
                      request.getDni(), e.getMessage());
+            metrics.recordOutcome(Outcome.INVALID_REQUEST);
             // Send error response via RabbitMQ
             rabbitMQPublisher.publishErrorResponse(request.getDni(), 
                     "Invalid request: " + e.getMessage());
         } catch (Exception e) {
             log.error("Error processing registration request for DNI: {}", 
                      request.getDni(), e);
+            metrics.recordOutcome(Outcome.ERROR);
             // Send error response via RabbitMQ
             rabbitMQPublisher.publishErrorResponse(request.getDni(), 
                     "Unexpected error: " + e.getMessage());
+        } finally {
+            sample.stop(metrics.consume(false));
+            sample.stop(lanes.latency(lane));
         }
     }
     
-    private void validateRequest(RegistrationRequest request) {
-        if (request.getDni() == null) {
-            throw new IllegalArgumentException("DNI is required");
+    /**
+     * Batch variant of {@link #consumeRegistrationRequest}, active when rabbitmq.listener.batch.enabled is true.
+     * The whole batch is persisted in one transaction; if that fails, each message is retried on its own
+     * so a single bad registration cannot fail the rest. Every message still gets its own response, except
+     * those that failed on a transient error and were sent to a delay queue, and those whose deadline had
+     * passed, which are dropped.
+     */
+    @RabbitListener(id = BATCH_LISTENER_ID, queues = "${rabbitmq.queues.persist}",
+            containerFactory = "batchListenerContainerFactory",
+            autoStartup = "#{${rabbitmq.listener.auto-startup:true} && !${rabbitmq.partitions.enabled:false}"
+                    + " && ${rabbitmq.listener.batch.enabled:false}}")
+    public void consumeRegistrationBatch(List<Message<RegistrationRequest>> messages) {
+        if (!admission.admit()) {
+            throw new ImmediateRequeueAmqpException("Connection pool saturated, requeueing batch of "
+                    + messages.size() + " registrations");
+        }
+        Timer.Sample sample = Timer.start();
+        long start = System.nanoTime();
+        log.debug("Received batch of {} registration requests", messages.size());
+
+        List<RegistrationRequest> validRequests = new ArrayList<>(messages.size());
+        Map<RegistrationRequest, MessageHeaders> requestHeaders = new IdentityHashMap<>();
+        for (Message<RegistrationRequest> message : messages) {
+            RegistrationRequest request = message.getPayload();
+            MessageHeaders messageHeaders = message.getHeaders();
+            if (deadlines.expired(messageHeaders.get(RegistrationDeadlines.DEADLINE_HEADER), request.getDni())) {
+                continue;
+            }
+            requestHeaders.put(request, messageHeaders);
+            PersistenceResponse processed = processedRegistrations.replay(messageId(messageHeaders), request);
+            if (processed != null) {
+                log.debug("Replaying response for already registered DNI: {}", request.getDni());
+                metrics.recordReplay();
+                rabbitMQPublisher.publishPersistenceResponse(processed);
+                continue;
+            }
+            try {
+                metrics.validation().record(() -> validateRequest(request));
+                validRequests.add(request);
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid registration request for DNI: {} - {}", 
+                         request.getDni(), e.getMessage());
+                metrics.recordOutcome(Outcome.INVALID_REQUEST);
+                rabbitMQPublisher.publishErrorResponse(request.getDni(), 
+                        "Invalid request: " + e.getMessage());
+            }
         }
-        if (request.getNombre() == null || request.getNombre().trim().isEmpty()) {
-            throw new IllegalArgumentException("Name is required");
+
+        // In write-behind mode only the registrations that did not fit in the journal are persisted here
+        validRequests = journal.appendAll(validRequests);
+
+        if (!validRequests.isEmpty()) {
+            List<PersistenceResponse> responses;
+            try {
+                List<RegistrationRequest> batch = validRequests;
+                // Same DNI and email stripes as the single-message listeners, so neither races the batch
+                responses = keyLocks.withKeys(batch, () -> userService.persistUsers(batch));
+            } catch (Exception e) {
+                log.warn("Batch persistence of {} registrations failed, falling back to one by one", 
+                        validRequests.size(), e);
+                responses = persistOneByOne(validRequests, requestHeaders);
+            }
+            recordProcessed(validRequests, responses, requestHeaders);
+            responses.forEach(rabbitMQPublisher::publishPersistenceResponse);
         }
-        if (request.getCorreo() == null || request.getCorreo().trim().isEmpty()) {
-            throw new IllegalArgumentException("Email is required");
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Processed batch of {} registrations in {} ms ({} msg/s)", 
+                messages.size(), elapsedMs, messages.size() * 1000L / elapsedMs);
+        sample.stop(metrics.consume(true));
+    }
+
+    private List<PersistenceResponse> persistOneByOne(List<RegistrationRequest> requests,
+                                                      Map<RegistrationRequest, MessageHeaders> headers) {
+        List<PersistenceResponse> responses = new ArrayList<>(requests.size());
+        for (RegistrationRequest request : requests) {
+            try {
+                responses.add(keyLocks.withKeys(request, () -> userService.persistUser(request)));
+            } catch (TransientPersistenceException e) {
+                MessageHeaders messageHeaders = headers.get(request);
+                Integer attempt = messageHeaders.get(RegistrationRetries.ATTEMPT_HEADER, Integer.class);
+                Long deadline = messageHeaders.get(RegistrationDeadlines.DEADLINE_HEADER) instanceof Number value
+                        ? value.longValue() : null;
+                String lane = messageHeaders.get(RegistrationLanes.LANE_HEADER, String.class);
+                if (!retries.retry(request, messageId(messageHeaders), attempt, carriedHeaders(deadline, lane), e)) {
+                    metrics.recordOutcome(Outcome.ERROR);
+                    responses.add(e.getResponse());
+                }
+            } catch (Exception e) {
+                log.error("Error processing registration request for DNI: {}", 
+                         request.getDni(), e);
+                metrics.recordOutcome(Outcome.ERROR);
+                rabbitMQPublisher.publishErrorResponse(request.getDni(), 
+                        "Unexpected error: " + e.getMessage());
+            }
         }
-        if (request.getClave() == null) {
-            throw new IllegalArgumentException("Password is required");
+        return responses;
+    }
+
+    private void recordProcessed(List<RegistrationRequest> requests, List<PersistenceResponse> responses,
+                                 Map<RegistrationRequest, MessageHeaders> headers) {
+        // The one-by-one fallback skips requests that threw, so match responses by DNI rather than position
+        Map<Integer, RegistrationRequest> requestsByDni = new HashMap<>();
+        requests.forEach(request -> requestsByDni.putIfAbsent(request.getDni(), request));
+        for (PersistenceResponse response : responses) {
+            RegistrationRequest request = requestsByDni.get(response.getDni());
+            if (request != null) {
+                processedRegistrations.record(messageId(headers.get(request)), request, response);
+            }
         }
-        if (request.getTelefono() == null) {
-            throw new IllegalArgumentException("Phone is required");
+    }
+
+    private static String messageId(MessageHeaders headers) {
+        return headers.get(AmqpHeaders.MESSAGE_ID, String.class);
+    }
+
+    private static Map<String, Object> carriedHeaders(Long deadline, String lane) {
+        Map<String, Object> headers = new HashMap<>(4);
+        if (deadline != null) {
+            headers.put(RegistrationDeadlines.DEADLINE_HEADER, deadline);
+        }
+        if (lane != null) {
+            headers.put(RegistrationLanes.LANE_HEADER, lane);
         }
+        return headers;
+    }
+
+    // Package-private for RabbitMQConsumerBenchmark
+    void validateRequest(RegistrationRequest request) {
+        RegistrationValidator.validate(request);
     }
 } 
\ No newline at end of file
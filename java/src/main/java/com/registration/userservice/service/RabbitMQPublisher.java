@@ -1,16 +1,31 @@
 package com.registration.userservice.service;
 
 import com.registration.userservice.dto.PersistenceResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -18,20 +33,106 @@ import java.time.format.DateTimeFormatter;
 public class RabbitMQPublisher {
 
     private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final RegistrationMetrics metrics;
     
     @Value("${rabbitmq.exchange.name}")
     private String exchangeName;
     
     @Value("${rabbitmq.routing-keys.persisted}")
     private String persistedRoutingKey;
+
+    @Value("${rabbitmq.publisher.confirms.enabled:false}")
+    private boolean confirmsEnabled;
+
+    @Value("${rabbitmq.publisher.confirms.max-in-flight:256}")
+    private int maxInFlight;
+
+    @Value("${rabbitmq.publisher.confirms.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${rabbitmq.publisher.confirms.retry-delay-ms:500}")
+    private long retryDelayMs;
+
+    @Value("${rabbitmq.publisher.confirms.window-timeout-ms:5000}")
+    private long windowTimeoutMs;
+
+    private Semaphore confirmWindow;
+    private ScheduledExecutorService retryExecutor;
+    private Timer confirmLatency;
+    private Counter acks;
+    private Counter nacks;
+    private Counter returns;
+    private Counter retries;
+    private Counter dropped;
+
+    @PostConstruct
+    void initConfirms() {
+        if (!confirmsEnabled) {
+            return;
+        }
+        ConnectionFactory connectionFactory = rabbitTemplate.getConnectionFactory();
+        if (connectionFactory == null || !connectionFactory.isPublisherConfirms()) {
+            log.warn("Publisher confirms requested but the connection factory is not configured for correlated confirms "
+                    + "(spring.rabbitmq.publisher-confirm-type: correlated), publishing without confirms");
+            confirmsEnabled = false;
+            return;
+        }
+
+        confirmWindow = new Semaphore(maxInFlight);
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "publisher-confirm-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        confirmLatency = Timer.builder("rabbitmq.publisher.confirm.latency")
+                .description("Time from publish to broker confirm")
+                .register(meterRegistry);
+        acks = confirmCounter("ack");
+        nacks = confirmCounter("nack");
+        returns = confirmCounter("returned");
+        retries = Counter.builder("rabbitmq.publisher.retries").register(meterRegistry);
+        dropped = Counter.builder("rabbitmq.publisher.dropped")
+                .description("Responses given up on after max-attempts")
+                .register(meterRegistry);
+        Gauge.builder("rabbitmq.publisher.confirms.in.flight", this, RabbitMQPublisher::getInFlightConfirms)
+                .description("Published responses waiting for a broker confirm")
+                .register(meterRegistry);
+
+        rabbitTemplate.setMandatory(true);
+        rabbitTemplate.setConfirmCallback(this::handleConfirm);
+        rabbitTemplate.setReturnsCallback(this::handleReturn);
+    }
+
+    @PreDestroy
+    void shutdownConfirms() {
+        if (retryExecutor != null) {
+            retryExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Number of published responses whose confirm has not arrived yet
+     */
+    public int getInFlightConfirms() {
+        return confirmWindow == null ? 0 : maxInFlight - confirmWindow.availablePermits();
+    }
     
     /**
-     * Publishes a persistence response to the response queue
+     * Publishes a persistence response to the response queue.
+     * With confirms enabled the call returns once the message is written; the broker ack arrives
+     * asynchronously, and nacked or returned messages are republished up to max-attempts times.
      * @param response The persistence response to publish
      */
     public void publishPersistenceResponse(PersistenceResponse response) {
+        Timer.Sample sample = Timer.start();
         try {
-            log.info("Publishing persistence response for DNI: {} with status: {}", 
+            if (confirmsEnabled) {
+                publishWithConfirm(response, 1);
+                return;
+            }
+            log.debug("Publishing persistence response for DNI: {} with status: {}", 
                     response.getDni(), response.getStatus());
             
             // Send the message to the exchange with the persisted routing key
@@ -43,9 +144,100 @@ public class RabbitMQPublisher {
                     response.getDni(), e);
             // We don't throw the exception to avoid disrupting the main flow
             // The error is logged for monitoring and debugging
+        } finally {
+            sample.stop(metrics.publish());
         }
     }
     
+    private void publishWithConfirm(PersistenceResponse response, int attempt) {
+        try {
+            // Bounded window: only blocks when max-in-flight confirms are outstanding
+            if (!confirmWindow.tryAcquire(windowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("Confirm window full ({} in flight), dropping persistence response for DNI: {}", 
+                        maxInFlight, response.getDni());
+                dropped.increment();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted waiting for confirm window, dropping persistence response for DNI: {}", 
+                    response.getDni());
+            dropped.increment();
+            return;
+        }
+
+        PendingConfirm pending = new PendingConfirm(response, attempt);
+        try {
+            log.debug("Publishing persistence response for DNI: {} with status: {} (attempt {})", 
+                    response.getDni(), response.getStatus(), attempt);
+            rabbitTemplate.convertAndSend(exchangeName, persistedRoutingKey, response, pending);
+        } catch (Exception e) {
+            confirmWindow.release();
+            log.error("Error publishing persistence response for DNI: {}", response.getDni(), e);
+            retryOrDrop(pending, e.getMessage());
+        }
+    }
+
+    private void handleConfirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (!(correlationData instanceof PendingConfirm pending)) {
+            return;
+        }
+        confirmWindow.release();
+        confirmLatency.record(System.nanoTime() - pending.getPublishedAt(), TimeUnit.NANOSECONDS);
+
+        if (ack && pending.getReturned() == null) {
+            acks.increment();
+            return;
+        }
+        if (ack) {
+            // Routed nowhere: the broker acks a returned message
+            retryOrDrop(pending, "returned: " + pending.getReturned().getReplyText());
+        } else {
+            nacks.increment();
+            retryOrDrop(pending, "nack: " + cause);
+        }
+    }
+
+    private void handleReturn(ReturnedMessage returned) {
+        returns.increment();
+        log.warn("Persistence response returned by broker: {} (exchange {}, routing key {})", 
+                returned.getReplyText(), returned.getExchange(), returned.getRoutingKey());
+    }
+
+    // Runs on the connection thread for confirms, so republishing is handed to the retry executor
+    private void retryOrDrop(PendingConfirm pending, String reason) {
+        PersistenceResponse response = pending.getResponse();
+        if (pending.getAttempt() >= maxAttempts) {
+            log.error("Giving up on persistence response for DNI: {} after {} attempts ({})", 
+                    response.getDni(), pending.getAttempt(), reason);
+            dropped.increment();
+            return;
+        }
+        log.warn("Republishing persistence response for DNI: {} ({})", response.getDni(), reason);
+        retries.increment();
+        retryExecutor.schedule(() -> publishWithConfirm(response, pending.getAttempt() + 1), 
+                retryDelayMs * pending.getAttempt(), TimeUnit.MILLISECONDS);
+    }
+
+    private Counter confirmCounter(String result) {
+        return Counter.builder("rabbitmq.publisher.confirms")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Getter
+    private static class PendingConfirm extends CorrelationData {
+        private final PersistenceResponse response;
+        private final int attempt;
+        private final long publishedAt = System.nanoTime();
+
+        PendingConfirm(PersistenceResponse response, int attempt) {
+            super(UUID.randomUUID().toString());
+            this.response = response;
+            this.attempt = attempt;
+        }
+    }
+
     /**
      * Creates and publishes an error response
      * @param dni The DNI of the user
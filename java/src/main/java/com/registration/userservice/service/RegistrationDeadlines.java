@@ -0,0 +1,59 @@
+package com.registration.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops registrations whose caller has stopped waiting for the answer. The gateway stamps each request
+ * with an x-deadline header, the epoch millis at which it gives up on the lp1.persisted response; past
+ * it, persisting and responding is work nobody reads, so the listener acks the delivery without touching
+ * the database. After a stall the stale part of the backlog therefore drains at broker speed, and the
+ * callers retry on their side. Messages without the header are never expired.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationDeadlines {
+
+    public static final String DEADLINE_HEADER = "x-deadline";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.deadline.enabled:false}")
+    private boolean enabled;
+
+    // Tolerated clock skew between the gateway host and this one
+    @Value("${rabbitmq.deadline.grace-ms:500}")
+    private long graceMs;
+
+    private Counter expired;
+
+    @PostConstruct
+    void init() {
+        expired = Counter.builder("registration.expired")
+                .description("Registrations dropped because their caller had already timed out")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a delivery is past its deadline, counting it if so
+     * @param deadline The value of the x-deadline header, null when the producer set none
+     */
+    public boolean expired(Object deadline, Integer dni) {
+        if (!enabled || !(deadline instanceof Number number)) {
+            return false;
+        }
+        long lateMs = System.currentTimeMillis() - number.longValue();
+        if (lateMs <= graceMs) {
+            return false;
+        }
+        expired.increment();
+        log.debug("Dropping registration for DNI: {}, its caller timed out {} ms ago", dni, lateMs);
+        return true;
+    }
+}
@@ -0,0 +1,146 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keeps interactive registrations from queueing behind bulk loads. Bulk registrations wait in their own
+ * queue, queue_lp1.bulk, consumed by a listener with fewer consumers than the queue_lp1 one, so a burst
+ * of synthetic users only ever takes that share of the database. Producers either route bulk
+ * registrations there directly (lp1.persist.bulk) or tag them with an x-registration-lane: bulk header;
+ * the queue_lp1 listener moves tagged ones to the bulk lane before any other work. Separate queues rather
+ * than x-max-priority, which cannot be added to the already declared queue_lp1.
+ * In partitioned mode nothing is moved: every registration of a DNI stays on its shard, and the lane only
+ * tags its latency and travels with its retries.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationLanes {
+
+    public static final String LANE_HEADER = "x-registration-lane";
+
+    public enum Lane {
+        INTERACTIVE,
+        BULK;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * The lane named by an x-registration-lane header; anything but "bulk" is interactive
+         */
+        public static Lane of(Object header) {
+            return header != null && BULK.tag().equalsIgnoreCase(header.toString()) ? BULK : INTERACTIVE;
+        }
+    }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.lanes.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.partitions.enabled:false}")
+    private boolean partitioned;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.queues.persist}")
+    private String persistQueue;
+
+    @Value("${rabbitmq.queues.bulk:queue_lp1.bulk}")
+    private String bulkQueue;
+
+    @Value("${rabbitmq.routing-keys.bulk:lp1.persist.bulk}")
+    private String bulkRoutingKey;
+
+    private final Map<Lane, Timer> latencies = new EnumMap<>(Lane.class);
+    private Counter diverted;
+
+    @PostConstruct
+    void init() {
+        for (Lane lane : Lane.values()) {
+            latencies.put(lane, Timer.builder("registration.lane.latency")
+                    .description("Listener processing time of a registration by lane")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry));
+        }
+        diverted = Counter.builder("registration.lane.diverted")
+                .description("Bulk registrations moved from queue_lp1 to the bulk lane")
+                .register(meterRegistry);
+        if (enabled) {
+            queueDepthGauge(Lane.INTERACTIVE, persistQueue);
+            queueDepthGauge(Lane.BULK, bulkQueue);
+        }
+    }
+
+    public Timer latency(Lane lane) {
+        return latencies.get(lane);
+    }
+
+    /**
+     * Moves a registration tagged for the bulk lane out of queue_lp1, keeping its message id, attempt and
+     * carried headers
+     * @param headers The carried headers of the delivery (see RegistrationRetries.carryHeaders)
+     * @return true if it was moved and the caller must not process it; false when lanes are disabled or
+     * partitioned, the registration is interactive, or the broker refused the republish
+     */
+    public boolean divert(RegistrationRequest request, String messageId, Integer attempt, Map<String, Object> headers) {
+        if (!enabled || partitioned || Lane.of(headers.get(LANE_HEADER)) != Lane.BULK) {
+            return false;
+        }
+        try {
+            rabbitTemplate.convertAndSend(exchangeName, bulkRoutingKey, request, message -> {
+                RegistrationRetries.carryHeaders(headers, message.getMessageProperties());
+                if (attempt != null) {
+                    message.getMessageProperties().setHeader(RegistrationRetries.ATTEMPT_HEADER, attempt);
+                }
+                message.getMessageProperties().setMessageId(messageId);
+                return message;
+            });
+        } catch (AmqpException e) {
+            log.warn("Could not move registration for DNI: {} to the bulk lane, processing it now: {}",
+                    request.getDni(), e.getMessage());
+            return false;
+        }
+        diverted.increment();
+        return true;
+    }
+
+    // Read from the broker on each scrape; NaN while it cannot be reached
+    private void queueDepthGauge(Lane lane, String queue) {
+        Gauge.builder("registration.lane.queue.depth", this, self -> self.messageCount(queue))
+                .description("Registrations waiting in the queue of a lane")
+                .tag("lane", lane.tag())
+                .register(meterRegistry);
+    }
+
+    private double messageCount(String queue) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            return info == null ? Double.NaN : info.getMessageCount();
+        } catch (AmqpException e) {
+            return Double.NaN;
+        }
+    }
+}
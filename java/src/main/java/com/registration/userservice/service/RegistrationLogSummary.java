@@ -0,0 +1,50 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Aggregated replacement for per-registration INFO logging: one line per interval with the
+ * number of registrations by outcome. Individual registrations are logged at DEBUG.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationLogSummary {
+
+    private final RegistrationMetrics metrics;
+    private final Map<Outcome, Long> lastCounts = new EnumMap<>(Outcome.class);
+
+    @Scheduled(fixedDelayString = "${users.log-summary.interval-ms:60000}",
+            initialDelayString = "${users.log-summary.interval-ms:60000}")
+    public void logSummary() {
+        String summary = summarize();
+        if (summary != null) {
+            log.info(summary);
+        }
+    }
+
+    /**
+     * @return The registrations since the previous call, or null if there were none
+     */
+    synchronized String summarize() {
+        StringBuilder breakdown = new StringBuilder();
+        long total = 0;
+        for (Outcome outcome : Outcome.values()) {
+            long count = metrics.outcomeCount(outcome);
+            long delta = count - lastCounts.getOrDefault(outcome, 0L);
+            lastCounts.put(outcome, count);
+            if (delta > 0) {
+                breakdown.append(breakdown.isEmpty() ? "" : ", ").append(outcome.reason()).append('=').append(delta);
+            }
+            total += delta;
+        }
+        return total == 0 ? null : "Processed " + total + " registrations (" + breakdown + ")";
+    }
+}
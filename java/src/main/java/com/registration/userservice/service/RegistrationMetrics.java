@@ -0,0 +1,148 @@
+package com.registration.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Timers and counters for the consume → persist → publish pipeline of a registration.
+ * Repository calls are timed by Spring Boot (spring.data.repository.invocations), listener
+ * deliveries by Spring AMQP (spring.rabbitmq.listener) and the connection pool by Hikari.
+ */
+@Component
+public class RegistrationMetrics {
+
+    /**
+     * Final status of a registration and why, as published in the PersistenceResponse
+     */
+    public enum Outcome {
+        REGISTERED("SUCCESS", "registered"),
+        DUPLICATE_DNI("FAILED", "duplicate_dni"),
+        DUPLICATE_EMAIL("FAILED", "duplicate_email"),
+        INVALID_REQUEST("FAILED", "invalid_request"),
+        ERROR("FAILED", "error");
+
+        private final String status;
+        private final String reason;
+
+        Outcome(String status, String reason) {
+            this.status = status;
+            this.reason = reason;
+        }
+
+        public String reason() {
+            return reason;
+        }
+    }
+
+    private final Timer consumeSingle;
+    private final Timer consumeBatch;
+    private final Timer validation;
+    private final Timer persist;
+    private final Timer persistBatch;
+    private final Timer friendResolution;
+    private final Counter friendsFound;
+    private final Counter friendsMissing;
+    private final Timer publish;
+    private final Counter replays;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public RegistrationMetrics(MeterRegistry meterRegistry) {
+        consumeSingle = consumeTimer("single", meterRegistry);
+        consumeBatch = consumeTimer("batch", meterRegistry);
+        validation = Timer.builder("registration.validation")
+                .description("Request validation in the consumer")
+                .register(meterRegistry);
+        persist = persistTimer("single", meterRegistry);
+        persistBatch = persistTimer("batch", meterRegistry);
+        friendResolution = Timer.builder("registration.friends.resolution")
+                .description("Lookup of the friend DNIs of a registration")
+                .register(meterRegistry);
+        friendsFound = friendsCounter("found", meterRegistry);
+        friendsMissing = friendsCounter("missing", meterRegistry);
+        publish = Timer.builder("registration.publish")
+                .description("Publish of a persistence response")
+                .register(meterRegistry);
+        replays = Counter.builder("registration.replays")
+                .description("Redelivered registrations answered with the response already sent")
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("registration.outcomes")
+                    .description("Registrations by final status and reason")
+                    .tag("status", outcome.status)
+                    .tag("reason", outcome.reason)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Listener time for one message, or for one batch when batch is true
+     */
+    public Timer consume(boolean batch) {
+        return batch ? consumeBatch : consumeSingle;
+    }
+
+    public Timer validation() {
+        return validation;
+    }
+
+    /**
+     * UserService time for one registration, or for one batch when batch is true
+     */
+    public Timer persist(boolean batch) {
+        return batch ? persistBatch : persist;
+    }
+
+    public Timer friendResolution() {
+        return friendResolution;
+    }
+
+    public void recordFriends(int found, int missing) {
+        friendsFound.increment(found);
+        friendsMissing.increment(missing);
+    }
+
+    public Timer publish() {
+        return publish;
+    }
+
+    public void recordReplay() {
+        replays.increment();
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    /**
+     * Registrations with this outcome since startup
+     */
+    public long outcomeCount(Outcome outcome) {
+        return (long) outcomes.get(outcome).count();
+    }
+
+    private static Timer consumeTimer(String mode, MeterRegistry meterRegistry) {
+        return Timer.builder("registration.consume")
+                .description("Listener processing time: validate, persist and publish")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static Timer persistTimer(String mode, MeterRegistry meterRegistry) {
+        return Timer.builder("registration.persist")
+                .description("Persistence of registrations, including duplicate checks and friend resolution")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static Counter friendsCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("registration.friends")
+                .description("Requested friend DNIs by lookup result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,172 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delayed redelivery of registrations that failed on a transient database error, off the listener threads.
+ * The registration is republished to the retry exchange, into the delay queue of its tier; when the
+ * queue's message TTL expires the broker dead-letters it back to queue_lp1 with lp1.persist.
+ * The attempt number travels in the x-registration-attempt header. A registration still failing after
+ * the last tier is published to the dead-letter exchange and lands in the parking-lot queue.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationRetries {
+
+    public static final String ATTEMPT_HEADER = "x-registration-attempt";
+    public static final String PARKED_REASON_HEADER = "x-parked-reason";
+
+    // Headers of the original delivery that stay with a registration when it is republished
+    private static final List<String> CARRIED_HEADERS =
+            List.of(RegistrationDeadlines.DEADLINE_HEADER, RegistrationLanes.LANE_HEADER);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.queues.persist}")
+    private String persistQueue;
+
+    @Value("${rabbitmq.retry.exchange:registro_bus.retry}")
+    private String retryExchange;
+
+    @Value("${rabbitmq.retry.delays-ms:1000,5000,30000}")
+    private long[] delaysMs;
+
+    @Value("${rabbitmq.retry.dead-letter-exchange:registro_bus.dlx}")
+    private String deadLetterExchange;
+
+    @Value("${rabbitmq.retry.parking-lot-routing-key:lp1.parked}")
+    private String parkingLotRoutingKey;
+
+    @Value("${rabbitmq.retry.parking-lot:queue_lp1.parking-lot}")
+    private String parkingLotQueue;
+
+    private final List<Counter> retries = new ArrayList<>();
+    private Counter parked;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        for (long delayMs : delaysMs) {
+            String queue = delayQueue(persistQueue, delayMs);
+            retries.add(Counter.builder("registration.retries")
+                    .description("Registrations sent to a delay queue after a transient failure, by tier")
+                    .tag("tier", delayMs + "ms")
+                    .register(meterRegistry));
+            queueDepthGauge(queue);
+        }
+        parked = Counter.builder("registration.parked")
+                .description("Registrations moved to the parking lot after the last retry tier")
+                .register(meterRegistry);
+        queueDepthGauge(parkingLotQueue);
+    }
+
+    /**
+     * Schedules the next attempt of a registration that failed on a transient error, or parks it when the
+     * retry tiers are used up
+     * @param attempt The value of the x-registration-attempt header, null on the first delivery
+     * @param headers Headers of the failed delivery; its deadline and lane are carried to the retry, null for none
+     * @return true if a retry was scheduled and the caller must not respond yet; false if the caller should
+     * publish the FAILED response (retries disabled, exhausted, or the broker refused the republish)
+     */
+    public boolean retry(RegistrationRequest request, String messageId, Integer attempt,
+                         Map<String, Object> headers, Throwable cause) {
+        if (!enabled) {
+            return false;
+        }
+        int done = attempt == null ? 0 : attempt;
+        try {
+            if (done < delaysMs.length) {
+                long delayMs = delaysMs[done];
+                rabbitTemplate.convertAndSend(retryExchange, delayQueue(persistQueue, delayMs), request, message -> {
+                    message.getMessageProperties().setHeader(ATTEMPT_HEADER, done + 1);
+                    carryHeaders(headers, message.getMessageProperties());
+                    message.getMessageProperties().setMessageId(messageId);
+                    return message;
+                });
+                retries.get(done).increment();
+                log.warn("Transient failure for DNI: {} (attempt {}), retrying in {} ms: {}",
+                        request.getDni(), done + 1, delayMs, cause.getMessage());
+                return true;
+            }
+            rabbitTemplate.convertAndSend(deadLetterExchange, parkingLotRoutingKey, request, message -> {
+                message.getMessageProperties().setHeader(ATTEMPT_HEADER, done);
+                message.getMessageProperties().setHeader(PARKED_REASON_HEADER, String.valueOf(cause.getMessage()));
+                message.getMessageProperties().setMessageId(messageId);
+                return message;
+            });
+            parked.increment();
+            log.error("Registration for DNI: {} still failing after {} retries, parked in {}: {}",
+                    request.getDni(), done, parkingLotQueue, cause.getMessage());
+        } catch (AmqpException e) {
+            log.error("Could not schedule retry {} for DNI: {}", done + 1, request.getDni(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Name of the delay queue of a retry tier, which is also its routing key on the retry exchange.
+     * The delay is part of the name, so changing the tiers declares new queues instead of clashing with
+     * the x-message-ttl of existing ones.
+     */
+    public static String delayQueue(String persistQueue, long delayMs) {
+        return persistQueue + ".retry." + delayMs + "ms";
+    }
+
+    /**
+     * Copies the x-deadline and x-registration-lane headers of a delivery to a republished message, so it
+     * still expires and keeps its lane
+     */
+    static void carryHeaders(Map<String, Object> headers, MessageProperties properties) {
+        if (headers == null) {
+            return;
+        }
+        for (String name : CARRIED_HEADERS) {
+            Object value = headers.get(name);
+            if (value != null) {
+                properties.setHeader(name, value);
+            }
+        }
+    }
+
+    // Read from the broker on each scrape; NaN while it cannot be reached
+    private void queueDepthGauge(String queue) {
+        Gauge.builder("registration.retry.queue.depth", this, self -> self.messageCount(queue))
+                .description("Registrations waiting in a delay queue or in the parking lot")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    private double messageCount(String queue) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            return info == null ? Double.NaN : info.getMessageCount();
+        } catch (AmqpException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+
+/**
+ * Required fields of a registration, shared by the queue consumer and the bulk importer
+ */
+public final class RegistrationValidator {
+
+    private RegistrationValidator() {
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first missing field
+     */
+    public static void validate(RegistrationRequest request) {
+        if (request.getDni() == null) {
+            throw new IllegalArgumentException("DNI is required");
+        }
+        if (request.getNombre() == null || request.getNombre().trim().isEmpty()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (request.getCorreo() == null || request.getCorreo().trim().isEmpty()) {
+            throw new IllegalArgumentException("Email is required");
+        }
+        if (request.getClave() == null) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        if (request.getTelefono() == null) {
+            throw new IllegalArgumentException("Phone is required");
+        }
+    }
+}
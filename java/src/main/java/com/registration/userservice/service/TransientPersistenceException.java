@@ -0,0 +1,20 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import lombok.Getter;
+
+/**
+ * Thrown by UserService when a registration failed on a transient database error (lost connection,
+ * pool exhaustion, timeout) and is worth another attempt later. Carries the FAILED response to publish
+ * if the caller gives up instead.
+ */
+@Getter
+public class TransientPersistenceException extends RuntimeException {
+
+    private final PersistenceResponse response;
+
+    public TransientPersistenceException(PersistenceResponse response, Throwable cause) {
+        super(response.getMessage(), cause);
+        this.response = response;
+    }
+}
@@ -0,0 +1,200 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.repository.UserRepository;
+import com.registration.userservice.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters over the DNIs and emails already in the users table.
+ * A registration whose DNI and email are both definitely new skips the existence queries; only possible
+ * hits are checked against the database. The filters are loaded once the application is ready and updated
+ * on every successful persist. Until loading finishes, or when disabled, every key is a possible hit.
+ * A missed key (e.g. inserted by another instance) is still rejected by the unique constraints.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserExistenceFilter {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.existence-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${users.existence-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${users.existence-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private BloomFilter dniFilter;
+    private BloomFilter correoFilter;
+    private volatile boolean loaded;
+
+    private Counter dniNegatives;
+    private Counter dniPossibleHits;
+    private Counter dniFalsePositives;
+    private Counter correoNegatives;
+    private Counter correoPossibleHits;
+    private Counter correoFalsePositives;
+
+    @PostConstruct
+    void init() {
+        dniFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        correoFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+
+        dniNegatives = checkCounter("dni", "negative");
+        dniPossibleHits = checkCounter("dni", "possible_hit");
+        dniFalsePositives = falsePositiveCounter("dni");
+        correoNegatives = checkCounter("correo", "negative");
+        correoPossibleHits = checkCounter("correo", "possible_hit");
+        correoFalsePositives = falsePositiveCounter("correo");
+        registerGauges("dni", dniFilter);
+        registerGauges("correo", correoFilter);
+    }
+
+    /**
+     * Loads every existing DNI and email into the filters
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            log.info("User existence filter disabled, every registration is checked against the database");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (Stream<Integer> dnis = userRepository.streamAllDnis();
+             Stream<String> correos = userRepository.streamAllCorreos()) {
+            dnis.forEach(dni -> dniFilter.put(dni));
+            correos.forEach(correoFilter::put);
+        }
+        loaded = true;
+        log.info("Loaded user existence filter with {} DNIs in {} ms ({} KB per filter, expected false positive rate {})",
+                dniFilter.insertions(), System.currentTimeMillis() - start,
+                dniFilter.memoryBytes() / 1024, String.format("%.5f", dniFilter.expectedFalsePositiveRate()));
+    }
+
+    /**
+     * Returns whether a user with this DNI exists, querying the database only on a possible hit
+     */
+    public boolean isDniTaken(Integer dni) {
+        if (isActive() && !dniFilter.mightContain(dni)) {
+            dniNegatives.increment();
+            return false;
+        }
+        dniPossibleHits.increment();
+        boolean exists = userRepository.existsByDni(dni);
+        if (!exists) {
+            dniFalsePositives.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Returns whether a user with this email exists, querying the database only on a possible hit
+     */
+    public boolean isCorreoTaken(String correo) {
+        if (isActive() && !correoFilter.mightContain(correo)) {
+            correoNegatives.increment();
+            return false;
+        }
+        correoPossibleHits.increment();
+        boolean exists = userRepository.existsByCorreo(correo);
+        if (!exists) {
+            correoFalsePositives.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Returns the DNIs that already exist; only possible hits are sent to the database
+     */
+    public Set<Integer> takenDnis(List<Integer> dnis) {
+        List<Integer> candidates = isActive()
+                ? dnis.stream().filter(dni -> dniFilter.mightContain(dni)).toList()
+                : dnis;
+        dniNegatives.increment(dnis.size() - candidates.size());
+        dniPossibleHits.increment(candidates.size());
+        if (candidates.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<Integer> taken = new HashSet<>(userRepository.findExistingDnis(candidates));
+        dniFalsePositives.increment(candidates.size() - taken.size());
+        return taken;
+    }
+
+    /**
+     * Returns the emails that already exist; only possible hits are sent to the database
+     */
+    public Set<String> takenCorreos(List<String> correos) {
+        List<String> candidates = isActive()
+                ? correos.stream().filter(correoFilter::mightContain).toList()
+                : correos;
+        correoNegatives.increment(correos.size() - candidates.size());
+        correoPossibleHits.increment(candidates.size());
+        if (candidates.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<String> taken = new HashSet<>(userRepository.findExistingCorreos(candidates));
+        correoFalsePositives.increment(candidates.size() - taken.size());
+        return taken;
+    }
+
+    /**
+     * Adds a newly persisted user to the filters
+     */
+    public void recordUser(Integer dni, String correo) {
+        dniFilter.put(dni);
+        correoFilter.put(correo);
+    }
+
+    private boolean isActive() {
+        return enabled && loaded;
+    }
+
+    private Counter checkCounter(String key, String result) {
+        return Counter.builder("users.existence.filter.checks")
+                .description("Existence checks answered by the filter (negative) or sent to the database (possible_hit)")
+                .tags("key", key, "result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter falsePositiveCounter(String key) {
+        return Counter.builder("users.existence.filter.false.positives")
+                .description("Possible hits the database reported as new")
+                .tags("key", key)
+                .register(meterRegistry);
+    }
+
+    private void registerGauges(String key, BloomFilter filter) {
+        Gauge.builder("users.existence.filter.expected.fpp", filter, BloomFilter::expectedFalsePositiveRate)
+                .description("False positive rate expected for the current number of entries")
+                .tags("key", key)
+                .register(meterRegistry);
+        Gauge.builder("users.existence.filter.memory", filter, BloomFilter::memoryBytes)
+                .description("Size of the filter bit array")
+                .tags("key", key)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.existence.filter.entries", filter, BloomFilter::insertions)
+                .tags("key", key)
+                .register(meterRegistry);
+    }
+}
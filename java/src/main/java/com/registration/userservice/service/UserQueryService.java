@@ -0,0 +1,127 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.FriendsPage;
+import com.registration.userservice.dto.UserResponse;
+import com.registration.userservice.repository.UserRepository;
+import com.registration.userservice.utils.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read side for other services: user lookups by DNI or email and friend DNI lists, served from a
+ * size-bounded, TTL-evicting cache. Misses are cached too, so UserService evicts a user's entries
+ * when it registers them. Only detached DTOs are cached, never entities. Friend details are paged
+ * by DNI (keyset) straight from the database, so a popular user's friends are never loaded at once.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserQueryService {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.query-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${users.query-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${users.friends-page.max-size:500}")
+    private int maxPageSize;
+
+    private ExpiringCache<Integer, Optional<UserResponse>> usersByDni;
+    private ExpiringCache<String, Optional<UserResponse>> usersByCorreo;
+    private ExpiringCache<Integer, List<Integer>> friendDnisByDni;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        usersByDni = new ExpiringCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+        usersByCorreo = new ExpiringCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+        friendDnisByDni = new ExpiringCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+        hits = cacheCounter("hit");
+        misses = cacheCounter("miss");
+    }
+
+    public Optional<UserResponse> findByDni(Integer dni) {
+        return cached(usersByDni, dni, () -> userRepository.findByDni(dni).map(UserResponse::from));
+    }
+
+    public Optional<UserResponse> findByCorreo(String correo) {
+        return cached(usersByCorreo, correo, () -> userRepository.findByCorreo(correo).map(UserResponse::from));
+    }
+
+    /**
+     * @return The DNIs of the users this user added as friends, ascending, or empty if the user does not exist
+     */
+    public Optional<List<Integer>> findFriendDnis(Integer dni) {
+        if (findByDni(dni).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(cached(friendDnisByDni, dni, () -> userRepository.findFriendDnis(dni)));
+    }
+
+    /**
+     * @param after Only friends with a greater DNI are returned; null for the first page
+     * @param limit Page size, capped at users.friends-page.max-size
+     * @return Up to limit friends ordered by DNI, or empty if the user does not exist
+     */
+    public Optional<FriendsPage> findFriends(Integer dni, Integer after, int limit) {
+        if (findByDni(dni).isEmpty()) {
+            return Optional.empty();
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<UserResponse> friends = userRepository.findFriendsPage(
+                dni, after != null ? after : Integer.MIN_VALUE, Limit.of(pageSize));
+        Integer nextAfter = friends.size() == pageSize ? friends.get(friends.size() - 1).getDni() : null;
+        return Optional.of(new FriendsPage(friends, nextAfter));
+    }
+
+    /**
+     * Drops the cached entries of a user that was just registered
+     */
+    public void evict(Integer dni, String correo) {
+        usersByDni.invalidate(dni);
+        usersByCorreo.invalidate(correo);
+        friendDnisByDni.invalidate(dni);
+    }
+
+    /**
+     * Drops every cached entry, e.g. after a bulk import made cached misses stale
+     */
+    public void evictAll() {
+        usersByDni.invalidateAll();
+        usersByCorreo.invalidateAll();
+        friendDnisByDni.invalidateAll();
+    }
+
+    private <K, V> V cached(ExpiringCache<K, V> cache, K key, Supplier<V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = loader.get();
+        cache.put(key, value);
+        return value;
+    }
+
+    private Counter cacheCounter(String result) {
+        return Counter.builder("users.query.cache")
+                .description("User lookups served from the cache or the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -3,16 +3,30 @@ package com.registration.userservice.service;
 import com.registration.userservice.dto.PersistenceResponse;
 import com.registration.userservice.dto.RegistrationRequest;
 import com.registration.userservice.entity.User;
+import com.registration.userservice.graph.FriendGraph;
 import com.registration.userservice.repository.UserRepository;
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import com.registration.userservice.utils.RetryUtil;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -20,26 +34,166 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserExistenceFilter existenceFilter;
+    private final RegistrationMetrics metrics;
+    private final UserQueryService userQueryService;
+    private final FriendGraph friendGraph;
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-    @Transactional
+    /**
+     * Persists a single registration with one optimistic insert.
+     * Duplicates are only pre-checked when the existence filter reports a possible hit; otherwise the
+     * unique constraints on dni and correo reject them, and the violation is translated into the same
+     * FAILED response.
+     * The insert runs in its own transaction so the violation surfaces here after rollback.
+     * @throws TransientPersistenceException if the insert failed on a transient database error
+     */
     public PersistenceResponse persistUser(RegistrationRequest request) {
+        Timer.Sample sample = Timer.start();
         try {
-            // Check if user already exists by DNI
-            if (userRepository.existsByDni(request.getDni())) {
-                log.warn("User with DNI {} already exists", request.getDni());
+            // Only possible hits in the existence filter cost a query; new DNIs/emails go straight to the insert
+            if (existenceFilter.isDniTaken(request.getDni())) {
+                log.debug("User with DNI {} already exists", request.getDni());
+                metrics.recordOutcome(Outcome.DUPLICATE_DNI);
                 return buildResponse(request.getDni(), "FAILED", 
                     "User with DNI " + request.getDni() + " already exists");
             }
-
-            // Check if user already exists by email
-            if (userRepository.existsByCorreo(request.getCorreo())) {
-                log.warn("User with email {} already exists", request.getCorreo());
+            if (existenceFilter.isCorreoTaken(request.getCorreo())) {
+                log.debug("User with email {} already exists", request.getCorreo());
+                metrics.recordOutcome(Outcome.DUPLICATE_EMAIL);
                 return buildResponse(request.getDni(), "FAILED", 
                     "User with email " + request.getCorreo() + " already exists");
             }
 
-            // Create new user
+            User newUser = transactionTemplate.execute(status -> insertUser(request));
+            existenceFilter.recordUser(newUser.getDni(), newUser.getCorreo());
+            userQueryService.evict(newUser.getDni(), newUser.getCorreo());
+            friendGraph.recordUser(newUser.getDni(), friendDnis(newUser));
+            log.debug("User created successfully with ID: {} and DNI: {}", newUser.getId(), newUser.getDni());
+            metrics.recordOutcome(Outcome.REGISTERED);
+
+            return buildResponse(request.getDni(), "SUCCESS", 
+                "User registered successfully with DNI: " + request.getDni());
+
+        } catch (DataIntegrityViolationException e) {
+            return translateConstraintViolation(request, e);
+        } catch (Exception e) {
+            PersistenceResponse failed = buildResponse(request.getDni(), "FAILED", 
+                "Error persisting user: " + e.getMessage());
+            if (RetryUtil.isRetryableException(e)) {
+                // The caller decides between a delayed retry and this response, and records the outcome
+                log.warn("Transient error persisting user with DNI: {} - {}", request.getDni(), e.getMessage());
+                throw new TransientPersistenceException(failed, e);
+            }
+            log.error("Error persisting user with DNI: {}", request.getDni(), e);
+            metrics.recordOutcome(Outcome.ERROR);
+            return failed;
+        } finally {
+            sample.stop(metrics.persist(false));
+        }
+    }
+
+    private User insertUser(RegistrationRequest request) {
+        User newUser = User.builder()
+                .nombre(request.getNombre())
+                .correo(request.getCorreo())
+                .clave(request.getClave())
+                .dni(request.getDni())
+                .telefono(request.getTelefono())
+                .build();
+
+        // Link friends before the insert so the user row and the friend rows go out in one flush
+        if (request.getFriendsDni() != null && !request.getFriendsDni().isEmpty()) {
+            int friendsAdded = addFriendRelationships(newUser, request.getFriendsDni());
+            log.debug("Added {} friend relationships for user with DNI: {}", friendsAdded, request.getDni());
+        }
+
+        return userRepository.saveAndFlush(newUser);
+    }
+
+    private PersistenceResponse translateConstraintViolation(RegistrationRequest request,
+                                                             DataIntegrityViolationException e) {
+        String constraint = violatedConstraint(e);
+
+        if (constraint.contains(User.DNI_UNIQUE_CONSTRAINT)) {
+            log.debug("User with DNI {} already exists", request.getDni());
+            metrics.recordOutcome(Outcome.DUPLICATE_DNI);
+            return buildResponse(request.getDni(), "FAILED", 
+                "User with DNI " + request.getDni() + " already exists");
+        }
+        if (constraint.contains(User.CORREO_UNIQUE_CONSTRAINT)) {
+            log.debug("User with email {} already exists", request.getCorreo());
+            metrics.recordOutcome(Outcome.DUPLICATE_EMAIL);
+            return buildResponse(request.getDni(), "FAILED", 
+                "User with email " + request.getCorreo() + " already exists");
+        }
+
+        log.error("Error persisting user with DNI: {}", request.getDni(), e);
+        metrics.recordOutcome(Outcome.ERROR);
+        return buildResponse(request.getDni(), "FAILED", 
+            "Error persisting user: " + e.getMessage());
+    }
+
+    private static String violatedConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message == null ? "" : message.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Persists a batch of registrations in a single transaction.
+     * Existence checks (possible hits only) and friend lookups take at most one query each for the whole batch,
+     * and the new users are written with a single saveAllAndFlush so Hibernate can batch the inserts.
+     * @param requests The registrations to persist, already validated
+     * @return One response per request, in the same order as the requests
+     */
+    @Transactional
+    public List<PersistenceResponse> persistUsers(List<RegistrationRequest> requests) {
+        Timer.Sample sample = Timer.start();
+        List<Integer> dnis = requests.stream().map(RegistrationRequest::getDni).toList();
+        List<String> correos = requests.stream().map(RegistrationRequest::getCorreo).toList();
+        Set<Integer> takenDnis = existenceFilter.takenDnis(dnis);
+        Set<String> takenCorreos = existenceFilter.takenCorreos(correos);
+
+        List<Integer> friendDnis = requests.stream()
+                .map(RegistrationRequest::getFriendsDni)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .distinct()
+                .toList();
+        Map<Integer, User> knownUsers = new HashMap<>();
+        if (!friendDnis.isEmpty()) {
+            metrics.friendResolution().record(() -> userRepository.findByDniIn(friendDnis)
+                    .forEach(friend -> knownUsers.put(friend.getDni(), friend)));
+        }
+
+        List<PersistenceResponse> responses = new ArrayList<>(requests.size());
+        // Recorded once the batch commits; a failed batch is retried one by one and counted there
+        List<Outcome> outcomes = new ArrayList<>(requests.size());
+        List<User> newUsers = new ArrayList<>(requests.size());
+        for (RegistrationRequest request : requests) {
+            if (takenDnis.contains(request.getDni())) {
+                log.debug("User with DNI {} already exists", request.getDni());
+                outcomes.add(Outcome.DUPLICATE_DNI);
+                responses.add(buildResponse(request.getDni(), "FAILED",
+                    "User with DNI " + request.getDni() + " already exists"));
+                continue;
+            }
+            if (takenCorreos.contains(request.getCorreo())) {
+                log.debug("User with email {} already exists", request.getCorreo());
+                outcomes.add(Outcome.DUPLICATE_EMAIL);
+                responses.add(buildResponse(request.getDni(), "FAILED",
+                    "User with email " + request.getCorreo() + " already exists"));
+                continue;
+            }
+            takenDnis.add(request.getDni());
+            takenCorreos.add(request.getCorreo());
+
             User newUser = User.builder()
                     .nombre(request.getNombre())
                     .correo(request.getCorreo())
@@ -48,55 +202,92 @@ public class UserService {
                     .telefono(request.getTelefono())
                     .build();
 
-            // Save the user first
-            newUser = userRepository.save(newUser);
-            log.info("User created successfully with ID: {} and DNI: {}", newUser.getId(), newUser.getDni());
-
-            // Handle friend relationships if any
+            // Friends can only point at users persisted before this one, as in the per-message path
             if (request.getFriendsDni() != null && !request.getFriendsDni().isEmpty()) {
-                int friendsAdded = addFriendRelationships(newUser, request.getFriendsDni());
-                log.info("Added {} friend relationships for user with DNI: {}", friendsAdded, request.getDni());
-                
-                // Save the user again to persist the friend relationships
-                userRepository.save(newUser);
+                linkFriends(newUser, request.getFriendsDni(), knownUsers);
             }
+            knownUsers.put(newUser.getDni(), newUser);
+            newUsers.add(newUser);
 
-            return buildResponse(request.getDni(), "SUCCESS", 
-                "User registered successfully with DNI: " + request.getDni());
+            outcomes.add(Outcome.REGISTERED);
+            responses.add(buildResponse(request.getDni(), "SUCCESS",
+                "User registered successfully with DNI: " + request.getDni()));
+        }
 
-        } catch (Exception e) {
-            log.error("Error persisting user with DNI: {}", request.getDni(), e);
-            return buildResponse(request.getDni(), "FAILED", 
-                "Error persisting user: " + e.getMessage());
+        if (!newUsers.isEmpty()) {
+            // Flushed here so a constraint violation fails this call, not the commit after it
+            userRepository.saveAllAndFlush(newUsers);
+            newUsers.forEach(user -> friendGraph.recordUser(user.getDni(), friendDnis(user)));
         }
+        log.debug("Persisted {} of {} users in batch", newUsers.size(), requests.size());
+        afterCommit(() -> {
+            newUsers.forEach(user -> {
+                existenceFilter.recordUser(user.getDni(), user.getCorreo());
+                userQueryService.evict(user.getDni(), user.getCorreo());
+            });
+            outcomes.forEach(metrics::recordOutcome);
+        });
+        sample.stop(metrics.persist(true));
+
+        return responses;
     }
 
-    private int addFriendRelationships(User user, List<Integer> friendsDni) {
-        int friendsAdded = 0;
+    /**
+     * Runs the action once the surrounding transaction commits, or right away outside of one,
+     * so a rolled back batch leaves no DNIs in the existence filter and no outcomes counted twice.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private int linkFriends(User user, List<Integer> friendsDni, Map<Integer, User> knownUsers) {
         List<Integer> notFoundDnis = new ArrayList<>();
+        int friendsAdded = 0;
 
         for (Integer friendDni : friendsDni) {
-            userRepository.findByDni(friendDni).ifPresentOrElse(
-                friend -> {
-                    user.addFriend(friend);
-                    log.debug("Added friend relationship: User {} -> Friend {}", user.getDni(), friend.getDni());
-                },
-                () -> {
-                    notFoundDnis.add(friendDni);
-                    log.warn("Friend with DNI {} not found in database", friendDni);
-                }
-            );
-            friendsAdded++;
+            User friend = knownUsers.get(friendDni);
+            if (friend != null) {
+                user.addFriend(friend);
+                friendsAdded++;
+                log.debug("Added friend relationship: User {} -> Friend {}", user.getDni(), friend.getDni());
+            } else {
+                notFoundDnis.add(friendDni);
+                log.debug("Friend with DNI {} not found in database", friendDni);
+            }
         }
 
         if (!notFoundDnis.isEmpty()) {
             log.warn("Could not add friends with DNIs {} - users not found", notFoundDnis);
         }
+        metrics.recordFriends(friendsAdded, notFoundDnis.size());
+
+        return friendsAdded;
+    }
+
+    private static int[] friendDnis(User user) {
+        return user.getFriends().stream().mapToInt(User::getDni).toArray();
+    }
+
+    private int addFriendRelationships(User user, List<Integer> friendsDni) {
+        // Resolve every friend with a single IN query instead of one findByDni per entry
+        Map<Integer, User> friendsByDni = new HashMap<>();
+        metrics.friendResolution().record(() -> userRepository.findByDniIn(friendsDni.stream().distinct().toList())
+                .forEach(friend -> friendsByDni.put(friend.getDni(), friend)));
 
-        return friendsAdded - notFoundDnis.size();
+        return linkFriends(user, friendsDni, friendsByDni);
     }
 
-    private PersistenceResponse buildResponse(Integer dni, String status, String message) {
+    // Package-private for UserServiceBenchmark
+    PersistenceResponse buildResponse(Integer dni, String status, String message) {
         return PersistenceResponse.builder()
                 .dni(dni)
                 .status(status)
@@ -0,0 +1,88 @@
+package com.registration.userservice.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe cache bounded both in size and in time.
+ * An entry expires ttl after it was put; when the cache is full the oldest entry is evicted.
+ * Entries are kept in insertion order, which with a fixed ttl is also expiry order, so expired
+ * entries are dropped from the head on every put.
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public ExpiringCache(int maxEntries, long ttl, TimeUnit unit) {
+        this(maxEntries, ttl, unit, System::nanoTime);
+    }
+
+    ExpiringCache(int maxEntries, long ttl, TimeUnit unit, LongSupplier nanoClock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The value put for the key, or null if there is none or it expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - nanoClock.getAsLong() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long now = nanoClock.getAsLong();
+        evictExpired(now);
+        // Re-insert so the entry moves to the tail and insertion order stays expiry order
+        entries.remove(key);
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext() && iterator.next().expiresAt - now <= 0) {
+            iterator.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
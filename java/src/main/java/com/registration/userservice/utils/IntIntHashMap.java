@@ -0,0 +1,92 @@
+package com.registration.userservice.utils;
+
+/**
+ * Open-addressing map from int keys to non-negative int values, without boxing.
+ * Not thread-safe. Entries cannot be removed.
+ */
+public class IntIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private int[] keys;
+    // Value + 1, so 0 marks a free slot
+    private int[] values;
+    private int size;
+    private int shift;
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    /**
+     * @return The value mapped to key, or {@link #MISSING}
+     */
+    public int get(int key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & (keys.length - 1)) {
+            if (values[slot] == 0) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * Maps key to value unless key is already present
+     * @return Whether the entry was added
+     */
+    public boolean putIfAbsent(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative");
+        }
+        int slot = slot(key);
+        for (; values[slot] != 0; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return false;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint of the key and value arrays
+     */
+    public long memoryBytes() {
+        return (long) keys.length * Integer.BYTES * 2;
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        shift--;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                putIfAbsent(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+}
@@ -1,29 +1,108 @@
 package com.registration.userservice.utils;
 
+import com.rabbitmq.client.ShutdownSignalException;
+import com.registration.userservice.config.RetryProperties;
+import com.zaxxer.hikari.pool.HikariPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.RetryListener;
-import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
 
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retry templates for transient database and broker failures. Templates are built once per named policy
+ * (retry.policies.*) and reused, since RetryTemplate keeps per-call state in its RetryContext.
+ * Failures are classified by type along the cause chain; the classification of each exception class is
+ * cached by the classifier, so a failure costs no string matching.
+ */
 @Slf4j
 @Component
 public class RetryUtil {
 
+    public static final String DEFAULT_POLICY = "default";
+
     private static final int DEFAULT_MAX_ATTEMPTS = 3;
     private static final long DEFAULT_INITIAL_DELAY = 1000L;
     private static final double DEFAULT_MULTIPLIER = 2.0;
     private static final long DEFAULT_MAX_DELAY = 30000L;
 
+    // Connection loss, pool exhaustion (Hikari throws SQLTransientConnectionException) and timeouts;
+    // constraint violations and other data errors are never retried
+    private static final BinaryExceptionClassifier RETRYABLE = new BinaryExceptionClassifier(Map.ofEntries(
+            Map.entry(SQLTransientException.class, true),
+            Map.entry(SQLRecoverableException.class, true),
+            Map.entry(TransientDataAccessException.class, true),
+            Map.entry(RecoverableDataAccessException.class, true),
+            Map.entry(DataAccessResourceFailureException.class, true),
+            Map.entry(CannotCreateTransactionException.class, true),
+            Map.entry(HikariPool.PoolInitializationException.class, true),
+            Map.entry(AmqpConnectException.class, true),
+            Map.entry(AmqpIOException.class, true),
+            Map.entry(AmqpTimeoutException.class, true),
+            Map.entry(ShutdownSignalException.class, true),
+            Map.entry(SocketException.class, true),
+            Map.entry(SocketTimeoutException.class, true),
+            Map.entry(TimeoutException.class, true)), false, true);
+
+    private static final RetryTemplate DEFAULT_TEMPLATE = createRetryTemplate();
+    private static final Map<CustomPolicy, RetryTemplate> CUSTOM_TEMPLATES = new ConcurrentHashMap<>();
+
+    private final Map<String, RetryTemplate> templates = new HashMap<>();
+
+    public RetryUtil(RetryProperties properties, MeterRegistry meterRegistry) {
+        Map<String, RetryProperties.Policy> policies = new HashMap<>(properties.policies());
+        policies.putIfAbsent(DEFAULT_POLICY, new RetryProperties.Policy(DEFAULT_MAX_ATTEMPTS,
+                Duration.ofMillis(DEFAULT_INITIAL_DELAY), DEFAULT_MULTIPLIER, Duration.ofMillis(DEFAULT_MAX_DELAY)));
+        policies.forEach((name, policy) -> templates.put(name, createRetryTemplate(name, policy.maxAttempts(),
+                policy.initialInterval().toMillis(), policy.multiplier(), policy.maxInterval().toMillis(),
+                meterRegistry)));
+    }
+
     /**
-     * Create a RetryTemplate with exponential backoff
+     * Execute an operation with the named retry policy
+     * @throws IllegalArgumentException if no such policy is configured
+     */
+    public <T, E extends Throwable> T execute(String policy, RetryCallback<T, E> callback) throws E {
+        return template(policy).execute(callback);
+    }
+
+    /**
+     * The shared template of a named retry policy
+     * @throws IllegalArgumentException if no such policy is configured
+     */
+    public RetryTemplate template(String policy) {
+        RetryTemplate template = templates.get(policy);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown retry policy: " + policy + ", configured: " + templates.keySet());
+        }
+        return template;
+    }
+
+    /**
+     * Create a RetryTemplate with jittered exponential backoff
      */
     public static RetryTemplate createRetryTemplate() {
         return createRetryTemplate(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY, DEFAULT_MULTIPLIER, DEFAULT_MAX_DELAY);
@@ -33,46 +112,25 @@ public class RetryUtil {
      * Create a RetryTemplate with custom parameters
      */
     public static RetryTemplate createRetryTemplate(int maxAttempts, long initialDelay, double multiplier, long maxDelay) {
+        return createRetryTemplate(DEFAULT_POLICY, maxAttempts, initialDelay, multiplier, maxDelay, null);
+    }
+
+    private static RetryTemplate createRetryTemplate(String name, int maxAttempts, long initialDelay, double multiplier,
+                                                     long maxDelay, MeterRegistry meterRegistry) {
         RetryTemplate retryTemplate = new RetryTemplate();
 
-        // Configure retry policy
-        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy();
-        retryPolicy.setMaxAttempts(maxAttempts);
-        retryTemplate.setRetryPolicy(retryPolicy);
+        // Only transient failures are retried
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(maxAttempts, RETRYABLE));
 
-        // Configure backoff policy
-        ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
+        // Each backoff is randomized between its base and multiplier times it, so callers that failed
+        // together do not retry in lockstep
+        ExponentialRandomBackOffPolicy backOffPolicy = new ExponentialRandomBackOffPolicy();
         backOffPolicy.setInitialInterval(initialDelay);
         backOffPolicy.setMultiplier(multiplier);
         backOffPolicy.setMaxInterval(maxDelay);
         retryTemplate.setBackOffPolicy(backOffPolicy);
 
-        // Add retry listener for logging
-        retryTemplate.registerListener(new RetryListener() {
-            @Override
-            public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
-                return true;
-            }
-
-            @Override
-            public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
-                if (throwable == null && context.getRetryCount() > 0) {
-                    log.info("Operation succeeded after {} retries", context.getRetryCount());
-                }
-            }
-
-            @Override
-            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
-                if (context.getRetryCount() < maxAttempts) {
-                    log.warn("Operation failed (attempt {}/{}), retrying: {}", 
-                            context.getRetryCount() + 1, maxAttempts, throwable.getMessage());
-                } else {
-                    log.error("Operation failed after {} attempts: {}", 
-                            maxAttempts, throwable.getMessage());
-                }
-            }
-        });
-
+        retryTemplate.registerListener(new LoggingRetryListener(name, maxAttempts, meterRegistry));
         return retryTemplate;
     }
 
@@ -80,50 +138,80 @@ public class RetryUtil {
      * Execute an operation with retry logic
      */
     public static <T> T withRetry(RetryCallback<T, Exception> callback) throws Exception {
-        RetryTemplate retryTemplate = createRetryTemplate();
-        return retryTemplate.execute(callback);
+        return DEFAULT_TEMPLATE.execute(callback);
     }
 
     /**
-     * Execute an operation with custom retry configuration
+     * Execute an operation with custom retry configuration; the template is built once per configuration
      */
     public static <T> T withRetry(RetryCallback<T, Exception> callback, int maxAttempts, long initialDelay) throws Exception {
-        RetryTemplate retryTemplate = createRetryTemplate(maxAttempts, initialDelay, DEFAULT_MULTIPLIER, DEFAULT_MAX_DELAY);
+        RetryTemplate retryTemplate = CUSTOM_TEMPLATES.computeIfAbsent(new CustomPolicy(maxAttempts, initialDelay),
+                policy -> createRetryTemplate(maxAttempts, initialDelay, DEFAULT_MULTIPLIER, DEFAULT_MAX_DELAY));
         return retryTemplate.execute(callback);
     }
 
     /**
-     * Check if an exception is retryable
+     * Check if an exception, or any of its causes, is a transient database or broker failure
      */
     public static boolean isRetryableException(Throwable throwable) {
-        if (throwable == null) {
-            return false;
+        return throwable != null && RETRYABLE.classify(throwable);
+    }
+
+    private record CustomPolicy(int maxAttempts, long initialDelay) {
+    }
+
+    /**
+     * Logs retries and, for configured policies, counts them by outcome
+     */
+    private static class LoggingRetryListener implements RetryListener {
+
+        private final int maxAttempts;
+        private final Counter retried;
+        private final Counter recovered;
+        private final Counter exhausted;
+
+        LoggingRetryListener(String policy, int maxAttempts, MeterRegistry meterRegistry) {
+            this.maxAttempts = maxAttempts;
+            this.retried = meterRegistry == null ? null : retryCounter("retried", policy, meterRegistry);
+            this.recovered = meterRegistry == null ? null : retryCounter("recovered", policy, meterRegistry);
+            this.exhausted = meterRegistry == null ? null : retryCounter("exhausted", policy, meterRegistry);
         }
 
-        String message = throwable.getMessage();
-        String className = throwable.getClass().getSimpleName();
+        @Override
+        public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            if (context.getRetryCount() == 0) {
+                return;
+            }
+            if (throwable == null) {
+                log.info("Operation succeeded after {} retries", context.getRetryCount());
+                increment(recovered);
+            } else if (isRetryableException(throwable)) {
+                log.error("Operation failed after {} attempts: {}", context.getRetryCount(), throwable.getMessage());
+                increment(exhausted);
+            }
+        }
 
-        // Database connection errors
-        if (message != null && (
-                message.contains("Connection refused") ||
-                message.contains("Connection reset") ||
-                message.contains("Connection timed out") ||
-                message.contains("Unable to acquire JDBC Connection"))) {
-            return true;
+        @Override
+        public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            if (context.getRetryCount() < maxAttempts && isRetryableException(throwable)) {
+                log.warn("Operation failed (attempt {}/{}), retrying: {}",
+                        context.getRetryCount(), maxAttempts, throwable.getMessage());
+                increment(retried);
+            }
         }
 
-        // RabbitMQ errors
-        if (message != null && (
-                message.contains("Connection closed") ||
-                message.contains("Channel closed") ||
-                message.contains("AMQP"))) {
-            return true;
+        private static void increment(Counter counter) {
+            if (counter != null) {
+                counter.increment();
+            }
         }
 
-        // Known retryable exception types
-        return className.contains("ConnectException") ||
-               className.contains("TimeoutException") ||
-               className.contains("SocketException") ||
-               className.contains("IOException");
+        private static Counter retryCounter(String result, String policy, MeterRegistry meterRegistry) {
+            return Counter.builder("retry.operations")
+                    .description("Retried attempts, and operations that recovered or exhausted their retries")
+                    .tag("policy", policy)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
     }
-} 
\ No newline at end of file
+}
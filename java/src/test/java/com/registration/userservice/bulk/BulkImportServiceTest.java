@@ -0,0 +1,58 @@
+package com.registration.userservice.bulk;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImportServiceTest {
+
+    @Test
+    void appendCopyRow_EscapesTextAndWritesFriendArray() {
+        // Given
+        RegistrationRequest request = RegistrationRequest.builder()
+                .nombre("Tab\there\\")
+                .correo("line\nbreak@example.com")
+                .clave(1234)
+                .dni(12345678)
+                .telefono(987654321)
+                .friendsDni(List.of(87654321, 11111111))
+                .build();
+        StringBuilder row = new StringBuilder();
+
+        // When
+        BulkImportService.appendCopyRow(row, 7, request);
+
+        // Then
+        assertEquals("7\tTab\\there\\\\\tline\\nbreak@example.com\t1234\t12345678\t987654321\t{87654321,11111111}\n",
+                row.toString());
+    }
+
+    @Test
+    void appendCopyRow_NoFriends_WritesNull() {
+        // Given
+        RegistrationRequest request = RegistrationRequest.builder()
+                .nombre("John")
+                .correo("john@example.com")
+                .clave(1234)
+                .dni(12345678)
+                .telefono(987654321)
+                .build();
+        StringBuilder row = new StringBuilder();
+
+        // When
+        BulkImportService.appendCopyRow(row, 0, request);
+
+        // Then
+        assertTrue(row.toString().endsWith("\t\\N\n"));
+    }
+
+    @Test
+    void insertUsers_IdsFollowSequenceBlocks() {
+        assertTrue(BulkImportService.INSERT_USERS.contains("nextval('users_id_seq')"));
+        assertTrue(BulkImportService.INSERT_USERS.contains("b.last_id - 50 + 1 + s.seq % 50"));
+        assertTrue(BulkImportService.INSERT_USERS.contains("b.block = s.seq / 50"));
+    }
+}
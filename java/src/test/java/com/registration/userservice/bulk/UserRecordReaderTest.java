@@ -0,0 +1,87 @@
+package com.registration.userservice.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.registration.userservice.dto.RegistrationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRecordReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csv_ColumnsMatchedByHeaderName() throws IOException {
+        // Given
+        UserRecordReader reader = reader(ImportFormat.CSV, """
+                dni,nombre,correo,clave,telefono,friends_dni
+                12345678,"Doe, John",john@example.com,1234,987654321,87654321;11111111
+                87654321,Jane,jane@example.com,5678,912345678,
+                """);
+
+        // When
+        RegistrationRequest first = reader.next();
+        RegistrationRequest second = reader.next();
+
+        // Then
+        assertEquals(12345678, first.getDni());
+        assertEquals("Doe, John", first.getNombre());
+        assertEquals(List.of(87654321, 11111111), first.getFriendsDni());
+        assertEquals(3, reader.lineNumber());
+        assertNull(second.getFriendsDni());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void csv_MalformedLine_RejectedAndReadingContinues() throws IOException {
+        // Given
+        UserRecordReader reader = reader(ImportFormat.CSV, """
+                nombre,correo,clave,dni,telefono
+                John,john@example.com,1234,not-a-dni,987654321
+
+                Jane,jane@example.com,5678,87654321,912345678
+                """);
+
+        // When / Then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+        assertEquals("Invalid dni: not-a-dni", e.getMessage());
+        assertEquals(2, reader.lineNumber());
+        assertEquals(87654321, reader.next().getDni());
+        assertEquals(4, reader.lineNumber());
+    }
+
+    @Test
+    void csv_HeaderMissingColumn_Throws() {
+        UserRecordReader reader = reader(ImportFormat.CSV, "nombre,correo,dni\n");
+
+        assertThrows(IllegalStateException.class, reader::next);
+    }
+
+    @Test
+    void ndjson_OneRequestPerLine() throws IOException {
+        // Given
+        UserRecordReader reader = reader(ImportFormat.NDJSON, """
+                {"nombre":"John","correo":"john@example.com","clave":1234,"dni":12345678,"telefono":987654321,"friendsDni":[87654321]}
+                {"nombre":
+                """);
+
+        // When / Then
+        assertEquals(List.of(87654321), reader.next().getFriendsDni());
+        assertThrows(IllegalArgumentException.class, reader::next);
+        assertNull(reader.next());
+    }
+
+    @Test
+    void splitCsv_QuotedFieldsAndEscapedQuotes() {
+        assertEquals(List.of("a", "b,c", "say \"hi\"", ""), UserRecordReader.splitCsv("a,\"b,c\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> UserRecordReader.splitCsv("a,\"b"));
+    }
+
+    private UserRecordReader reader(ImportFormat format, String input) {
+        return new UserRecordReader(new StringReader(input), format, objectMapper);
+    }
+}
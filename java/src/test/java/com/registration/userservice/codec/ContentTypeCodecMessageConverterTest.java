@@ -0,0 +1,116 @@
+package com.registration.userservice.codec;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentTypeCodecMessageConverterTest {
+
+    private static final Map<String, MessageConverter> CODECS = Map.of(
+            MessageProperties.CONTENT_TYPE_JSON, new Jackson2JsonMessageConverter(),
+            CborMessageConverter.CONTENT_TYPE, new CborMessageConverter());
+
+    private RegistrationRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = RegistrationRequest.builder()
+                .nombre("Juan Pérez")
+                .correo("juan.perez@example.com")
+                .clave(123456)
+                .dni(12345678)
+                .telefono(987654321)
+                .friendsDni(IntStream.range(0, 10).map(i -> 20000000 + i).boxed().toList())
+                .build();
+    }
+
+    @Test
+    void fromMessage_DecodesJsonAndCborByContentType() {
+        // Given
+        ContentTypeCodecMessageConverter converter = converter(MessageProperties.CONTENT_TYPE_JSON);
+
+        // When
+        Object fromJson = converter.fromMessage(encode(MessageProperties.CONTENT_TYPE_JSON, request));
+        Object fromCbor = converter.fromMessage(encode(CborMessageConverter.CONTENT_TYPE, request));
+
+        // Then
+        assertEquals(request, fromJson);
+        assertEquals(request, fromCbor);
+    }
+
+    @Test
+    void fromMessage_FallsBackToJsonForMissingOrUnknownContentType() {
+        // Given
+        ContentTypeCodecMessageConverter converter = converter(CborMessageConverter.CONTENT_TYPE);
+        Message json = encode(MessageProperties.CONTENT_TYPE_JSON, request);
+
+        // When
+        json.getMessageProperties().setContentType(null);
+        Object withoutContentType = converter.fromMessage(json);
+        json.getMessageProperties().setContentType(MessageProperties.DEFAULT_CONTENT_TYPE);
+        Object withUnknownContentType = converter.fromMessage(json);
+
+        // Then
+        assertEquals(request, withoutContentType);
+        assertEquals(request, withUnknownContentType);
+        assertSame(CODECS.get(CborMessageConverter.CONTENT_TYPE),
+                converter.codecFor("Application/CBOR; charset=binary"));
+    }
+
+    @Test
+    void toMessage_UsesOutboundCodec() {
+        // Given
+        ContentTypeCodecMessageConverter converter = converter(CborMessageConverter.CONTENT_TYPE);
+        PersistenceResponse response = PersistenceResponse.builder()
+                .dni(12345678)
+                .status("SUCCESS")
+                .message("User registered successfully with DNI: 12345678")
+                .build();
+
+        // When
+        Message message = converter.toMessage(response, new MessageProperties());
+
+        // Then
+        assertEquals(CborMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        message.getMessageProperties().setInferredArgumentType(PersistenceResponse.class);
+        assertEquals(response, converter.fromMessage(message));
+    }
+
+    @Test
+    void constructor_RejectsUnregisteredOutboundContentType() {
+        assertThrows(MessageConversionException.class,
+                () -> converter("application/x-protobuf"));
+    }
+
+    @Test
+    void cborPayload_IsSmallerThanJson() {
+        // When
+        Message json = encode(MessageProperties.CONTENT_TYPE_JSON, request);
+        Message cbor = encode(CborMessageConverter.CONTENT_TYPE, request);
+
+        // Then
+        assertTrue(cbor.getBody().length < json.getBody().length);
+    }
+
+    private static ContentTypeCodecMessageConverter converter(String outboundContentType) {
+        return new ContentTypeCodecMessageConverter(CODECS, MessageProperties.CONTENT_TYPE_JSON, outboundContentType);
+    }
+
+    private static Message encode(String contentType, Object payload) {
+        Message message = CODECS.get(contentType).toMessage(payload, new MessageProperties());
+        // The listener adapter sets this from the @RabbitListener method argument
+        message.getMessageProperties().setInferredArgumentType(payload.getClass());
+        return message;
+    }
+}
@@ -0,0 +1,197 @@
+package com.registration.userservice.config;
+
+import com.rabbitmq.client.Channel;
+import com.registration.userservice.service.RabbitMQConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.aop.Advice;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.support.ContainerUtils;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RabbitListenerConfigTest {
+
+    private RabbitListenerConfig config;
+    private SimpleRabbitListenerContainerFactoryConfigurer configurer;
+    private ConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        config = new RabbitListenerConfig();
+        ReflectionTestUtils.setField(config, "concurrency", 4);
+        ReflectionTestUtils.setField(config, "maxConcurrency", 8);
+        ReflectionTestUtils.setField(config, "prefetch", 10);
+        ReflectionTestUtils.setField(config, "batchSize", 50);
+        ReflectionTestUtils.setField(config, "batchReceiveTimeoutMs", 200L);
+        ReflectionTestUtils.setField(config, "bulkConcurrency", 2);
+        ReflectionTestUtils.setField(config, "bulkPrefetch", 5);
+        configurer = new SimpleRabbitListenerContainerFactoryConfigurer(new RabbitProperties());
+        connectionFactory = mock(ConnectionFactory.class);
+    }
+
+    @Test
+    void rabbitListenerContainerFactory_AppliesConcurrencyAndPrefetch() {
+        // When
+        SimpleMessageListenerContainer container = config
+                .rabbitListenerContainerFactory(configurer, connectionFactory)
+                .createListenerContainer();
+
+        // Then
+        assertEquals(4, ReflectionTestUtils.getField(container, "concurrentConsumers"));
+        assertEquals(8, ReflectionTestUtils.getField(container, "maxConcurrentConsumers"));
+        assertEquals(10, ReflectionTestUtils.getField(container, "prefetchCount"));
+        assertFalse(ReflectionTestUtils.getField(container, "taskExecutor") instanceof VirtualThreadTaskExecutor);
+    }
+
+    @Test
+    void batchListenerContainerFactory_PrefetchCoversBatchSize() {
+        // When
+        SimpleRabbitListenerContainerFactory factory = config.batchListenerContainerFactory(configurer, connectionFactory);
+        SimpleMessageListenerContainer container = factory.createListenerContainer();
+
+        // Then
+        assertEquals(50, ReflectionTestUtils.getField(container, "prefetchCount"));
+        assertEquals(50, ReflectionTestUtils.getField(container, "batchSize"));
+        assertTrue((Boolean) ReflectionTestUtils.getField(container, "consumerBatchEnabled"));
+        assertEquals(4, ReflectionTestUtils.getField(container, "concurrentConsumers"));
+    }
+
+    @Test
+    void bulkListenerContainerFactory_UsesFewerFixedConsumers() {
+        // When
+        SimpleMessageListenerContainer container = config
+                .bulkListenerContainerFactory(configurer, connectionFactory)
+                .createListenerContainer();
+
+        // Then
+        assertEquals(2, ReflectionTestUtils.getField(container, "concurrentConsumers"));
+        assertEquals(2, ReflectionTestUtils.getField(container, "maxConcurrentConsumers"));
+        assertEquals(5, ReflectionTestUtils.getField(container, "prefetchCount"));
+    }
+
+    @Test
+    void rabbitListenerContainerFactory_VirtualThreadsEnabled_UsesVirtualThreadExecutor() {
+        // Given
+        ReflectionTestUtils.setField(config, "virtualThreads", true);
+
+        // When
+        SimpleMessageListenerContainer container = config
+                .rabbitListenerContainerFactory(configurer, connectionFactory)
+                .createListenerContainer();
+
+        // Then
+        assertInstanceOf(VirtualThreadTaskExecutor.class, ReflectionTestUtils.getField(container, "taskExecutor"));
+    }
+
+    @Test
+    void listenerContainerMetrics_ReportsConsumersOfRunningContainer() {
+        // Given
+        SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+        when(container.getActiveConsumerCount()).thenReturn(3);
+        when(container.isRunning()).thenReturn(true);
+        RabbitListenerEndpointRegistry endpointRegistry = mock(RabbitListenerEndpointRegistry.class);
+        when(endpointRegistry.getListenerContainer(RabbitMQConsumer.LISTENER_ID)).thenReturn(container);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // When
+        config.listenerContainerMetrics(endpointRegistry).bindTo(meterRegistry);
+
+        // Then
+        assertEquals(3, meterRegistry.get("rabbitmq.listener.consumers")
+                .tag("listener", RabbitMQConsumer.LISTENER_ID).gauge().value());
+        assertEquals(1, meterRegistry.get("rabbitmq.listener.running")
+                .tag("listener", RabbitMQConsumer.LISTENER_ID).gauge().value());
+        assertEquals(0, meterRegistry.get("rabbitmq.listener.running")
+                .tag("listener", RabbitMQConsumer.BATCH_LISTENER_ID).gauge().value());
+    }
+
+    @Test
+    void rabbitListenerContainerFactory_ListenerRetry_RequeuesImmediateRequeueWithoutRetrying() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+        BiConsumer<Channel, Message> listener = retriedListener(message -> {
+            attempts.incrementAndGet();
+            throw new ListenerExecutionFailedException("Listener threw exception",
+                    new ImmediateRequeueAmqpException("Admission control is shedding load"), message);
+        });
+
+        // When
+        Exception thrown = assertThrows(Exception.class, () -> listener.accept(mock(Channel.class), message()));
+
+        // Then
+        assertEquals(1, attempts.get());
+        assertTrue(ContainerUtils.shouldRequeue(false, thrown, LogFactory.getLog(getClass())));
+    }
+
+    @Test
+    void rabbitListenerContainerFactory_ListenerRetry_RejectsOtherFailuresOnceExhausted() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+        BiConsumer<Channel, Message> listener = retriedListener(message -> {
+            attempts.incrementAndGet();
+            throw new ListenerExecutionFailedException("Listener threw exception",
+                    new IllegalStateException("boom"), message);
+        });
+
+        // When
+        Exception thrown = assertThrows(Exception.class, () -> listener.accept(mock(Channel.class), message()));
+
+        // Then
+        assertEquals(3, attempts.get());
+        assertFalse(ContainerUtils.shouldRequeue(true, thrown, LogFactory.getLog(getClass())));
+    }
+
+    /**
+     * Wraps a listener in the advice chain of a container factory configured like Spring Boot does when
+     * spring.rabbitmq.listener.simple.retry is enabled, with this config's retry customizer and recoverer
+     */
+    @SuppressWarnings("unchecked")
+    private BiConsumer<Channel, Message> retriedListener(Consumer<Message> delegate) {
+        RabbitProperties properties = new RabbitProperties();
+        properties.getListener().getSimple().getRetry().setEnabled(true);
+        properties.getListener().getSimple().getRetry().setInitialInterval(Duration.ofMillis(1));
+        // What RabbitAnnotationDrivenConfiguration does with the customizer and recoverer beans
+        SimpleRabbitListenerContainerFactoryConfigurer retryingConfigurer =
+                new SimpleRabbitListenerContainerFactoryConfigurer(properties);
+        ReflectionTestUtils.invokeMethod(retryingConfigurer, "setRetryTemplateCustomizers",
+                List.of(config.listenerRetryPolicy(properties)));
+        ReflectionTestUtils.invokeMethod(retryingConfigurer, "setMessageRecoverer", config.listenerMessageRecoverer());
+        SimpleRabbitListenerContainerFactory factory =
+                config.rabbitListenerContainerFactory(retryingConfigurer, connectionFactory);
+
+        // The container invokes its listener through the advice chain with (channel, message) arguments
+        BiConsumer<Channel, Message> target = (channel, message) -> delegate.accept(message);
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        for (Advice advice : factory.getAdviceChain()) {
+            proxyFactory.addAdvice(advice);
+        }
+        return (BiConsumer<Channel, Message>) proxyFactory.getProxy();
+    }
+
+    private static Message message() {
+        return new Message(new byte[0], new MessageProperties());
+    }
+}
@@ -0,0 +1,73 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.bulk.BulkImportService;
+import com.registration.userservice.bulk.ImportFormat;
+import com.registration.userservice.dto.BulkImportReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportControllerTest {
+
+    @Mock
+    private BulkImportService bulkImportService;
+
+    @InjectMocks
+    private BulkImportController bulkImportController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(bulkImportController).build();
+    }
+
+    @Test
+    void importUsers_Ndjson_ReturnsReport() throws Exception {
+        // Given
+        BulkImportReport report = BulkImportReport.builder()
+                .rowsRead(2)
+                .usersInserted(1)
+                .duplicates(1)
+                .rowsPerSecond(2000)
+                .rejections(List.of())
+                .build();
+        when(bulkImportService.importUsers(any(InputStream.class), eq(ImportFormat.NDJSON))).thenReturn(report);
+
+        // When / Then
+        mockMvc.perform(post("/users/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"dni\":12345678}\n{\"dni\":87654321}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersInserted").value(1))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.rowsPerSecond").value(2000));
+    }
+
+    @Test
+    void importUsers_UnsupportedContentType_Returns415() throws Exception {
+        mockMvc.perform(post("/users/import")
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(bulkImportService);
+    }
+}
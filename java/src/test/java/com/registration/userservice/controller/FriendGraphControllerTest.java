@@ -0,0 +1,70 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.graph.FriendGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class FriendGraphControllerTest {
+
+    @Mock
+    private FriendGraph friendGraph;
+
+    @InjectMocks
+    private FriendGraphController friendGraphController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(friendGraphController).build();
+    }
+
+    @Test
+    void neighbours_ReturnsDnis() throws Exception {
+        // Given
+        when(friendGraph.isLoaded()).thenReturn(true);
+        when(friendGraph.neighbours(12345678, 3)).thenReturn(Optional.of(new int[]{11111111, 87654321}));
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678/network").param("hops", "3"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[11111111, 87654321]"));
+    }
+
+    @Test
+    void shortestPath_UnknownUser_Returns404() throws Exception {
+        // Given
+        when(friendGraph.isLoaded()).thenReturn(true);
+        when(friendGraph.shortestPath(12345678, 99999999)).thenReturn(Optional.empty());
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678/path/99999999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void mutualFriends_IndexNotLoaded_Returns503() throws Exception {
+        // Given
+        when(friendGraph.isLoaded()).thenReturn(false);
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678/mutual-friends/87654321"))
+                .andExpect(status().isServiceUnavailable());
+        verifyNoMoreInteractions(friendGraph);
+    }
+}
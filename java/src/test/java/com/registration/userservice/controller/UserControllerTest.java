@@ -0,0 +1,114 @@
+package com.registration.userservice.controller;
+
+import com.registration.userservice.dto.FriendsPage;
+import com.registration.userservice.dto.UserResponse;
+import com.registration.userservice.service.UserQueryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UserControllerTest {
+
+    @Mock
+    private UserQueryService userQueryService;
+
+    @InjectMocks
+    private UserController userController;
+
+    private MockMvc mockMvc;
+    private UserResponse user;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+        user = UserResponse.builder()
+                .dni(12345678)
+                .nombre("John Doe")
+                .correo("john.doe@example.com")
+                .telefono(987654321)
+                .build();
+    }
+
+    @Test
+    void findByDni_Found_ReturnsUserWithoutPassword() throws Exception {
+        // Given
+        when(userQueryService.findByDni(12345678)).thenReturn(Optional.of(user));
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value(12345678))
+                .andExpect(jsonPath("$.correo").value("john.doe@example.com"))
+                .andExpect(jsonPath("$.clave").doesNotExist());
+    }
+
+    @Test
+    void findByDni_NotFound_Returns404() throws Exception {
+        // Given
+        when(userQueryService.findByDni(99999999)).thenReturn(Optional.empty());
+
+        // When / Then
+        mockMvc.perform(get("/users/99999999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findByCorreo_Found_ReturnsUser() throws Exception {
+        // Given
+        when(userQueryService.findByCorreo("john.doe@example.com")).thenReturn(Optional.of(user));
+
+        // When / Then
+        mockMvc.perform(get("/users").param("correo", "john.doe@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value(12345678));
+    }
+
+    @Test
+    void findFriends_ReturnsPageWithCursor() throws Exception {
+        // Given
+        UserResponse friend = UserResponse.builder().dni(87654321).nombre("Friend One").build();
+        when(userQueryService.findFriends(12345678, 11111111, 1))
+                .thenReturn(Optional.of(new FriendsPage(List.of(friend), 87654321)));
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678/friends").param("after", "11111111").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.friends[0].dni").value(87654321))
+                .andExpect(jsonPath("$.nextAfter").value(87654321));
+    }
+
+    @Test
+    void findFriendDnis_ReturnsDniList() throws Exception {
+        // Given
+        when(userQueryService.findFriendDnis(12345678)).thenReturn(Optional.of(List.of(11111111, 87654321)));
+
+        // When / Then
+        mockMvc.perform(get("/users/12345678/friends/dnis"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1]").value(87654321));
+    }
+
+    @Test
+    void findFriendDnis_UnknownUser_Returns404() throws Exception {
+        // Given
+        when(userQueryService.findFriendDnis(99999999)).thenReturn(Optional.empty());
+
+        // When / Then
+        mockMvc.perform(get("/users/99999999/friends/dnis"))
+                .andExpect(status().isNotFound());
+    }
+}
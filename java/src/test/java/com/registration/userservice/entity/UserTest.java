@@ -36,13 +36,11 @@ class UserTest {
         assertEquals(dni, user.getDni());
         assertEquals(telefono, user.getTelefono());
         assertNotNull(user.getFriends());
-        assertNotNull(user.getFriendOf());
         assertTrue(user.getFriends().isEmpty());
-        assertTrue(user.getFriendOf().isEmpty());
     }
 
     @Test
-    @DisplayName("Should add friend relationship")
+    @DisplayName("Should add friend on the owning side only")
     void shouldAddFriendRelationship() {
         // Given
         User user1 = User.builder()
@@ -62,9 +60,8 @@ class UserTest {
 
         // Then
         assertTrue(user1.getFriends().contains(user2));
-        assertTrue(user2.getFriendOf().contains(user1));
         assertEquals(1, user1.getFriends().size());
-        assertEquals(1, user2.getFriendOf().size());
+        assertTrue(user2.getFriends().isEmpty());
     }
 
     @Test
@@ -90,9 +87,7 @@ class UserTest {
 
         // Then
         assertFalse(user1.getFriends().contains(user2));
-        assertFalse(user2.getFriendOf().contains(user1));
         assertTrue(user1.getFriends().isEmpty());
-        assertTrue(user2.getFriendOf().isEmpty());
     }
 
     @Test
@@ -116,15 +111,9 @@ class UserTest {
         
         assertEquals(1, user2.getFriends().size());
         assertTrue(user2.getFriends().contains(user4));
-        
-        assertEquals(1, user2.getFriendOf().size());
-        assertTrue(user2.getFriendOf().contains(user1));
-        
-        assertEquals(1, user3.getFriendOf().size());
-        assertTrue(user3.getFriendOf().contains(user1));
-        
-        assertEquals(1, user4.getFriendOf().size());
-        assertTrue(user4.getFriendOf().contains(user2));
+
+        assertTrue(user3.getFriends().isEmpty());
+        assertTrue(user4.getFriends().isEmpty());
     }
 
     @Test
@@ -142,7 +131,6 @@ class UserTest {
         assertNull(user.getClave());
         assertNull(user.getTelefono());
         assertNotNull(user.getFriends());
-        assertNotNull(user.getFriendOf());
     }
 
     @Test
@@ -159,6 +147,5 @@ class UserTest {
         // Then
         assertEquals(user1, user2); // Should be equal despite different friends
         assertFalse(user1.toString().contains("friends")); // toString should not include friends
-        assertFalse(user1.toString().contains("friendOf")); // toString should not include friendOf
     }
 } 
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.registration.userservice.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsrGraphTest {
+
+    private CsrGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        // 10 -> 20 -> 40 -> 50, 10 -> 30 -> 40, 60 has no friends
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        for (int dni : new int[]{10, 20, 30, 40, 50, 60}) {
+            builder.addUser(dni);
+        }
+        builder.addFriend(10, 30);
+        builder.addFriend(10, 20);
+        builder.addFriend(20, 40);
+        builder.addFriend(30, 40);
+        builder.addFriend(40, 50);
+        graph = builder.build();
+    }
+
+    @Test
+    void build_SkipsRowsOfUnknownUsers() {
+        // Given
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        builder.addUser(10);
+
+        // When
+        boolean added = builder.addFriend(10, 99);
+        CsrGraph built = builder.build();
+
+        // Then
+        assertFalse(added);
+        assertEquals(1, built.nodeCount());
+        assertEquals(0, built.edgeCount());
+    }
+
+    @Test
+    void neighbours_FollowsHopsOutward() {
+        assertArrayEquals(new int[]{20, 30}, graph.neighbours(10, 1, 100));
+        assertArrayEquals(new int[]{20, 30, 40}, graph.neighbours(10, 2, 100));
+        assertArrayEquals(new int[]{20, 30, 40, 50}, graph.neighbours(10, 3, 100));
+        assertArrayEquals(new int[0], graph.neighbours(60, 3, 100));
+        assertNull(graph.neighbours(99, 1, 100));
+    }
+
+    @Test
+    void neighbours_StopsAtMaxResults() {
+        assertEquals(2, graph.neighbours(10, 3, 2).length);
+    }
+
+    @Test
+    void mutualFriends_IntersectsFriendLists() {
+        assertArrayEquals(new int[]{40}, graph.mutualFriends(20, 30));
+        assertArrayEquals(new int[0], graph.mutualFriends(10, 60));
+        assertNull(graph.mutualFriends(10, 99));
+    }
+
+    @Test
+    void shortestPath_ReturnsFewestHops() {
+        assertArrayEquals(new int[]{10, 20, 40, 50}, graph.shortestPath(10, 50, 6));
+        assertArrayEquals(new int[]{10}, graph.shortestPath(10, 10, 6));
+        // Edges are directed: nobody is reachable from 50
+        assertArrayEquals(new int[0], graph.shortestPath(50, 10, 6));
+        assertArrayEquals(new int[0], graph.shortestPath(10, 50, 2));
+        assertNull(graph.shortestPath(10, 99, 6));
+    }
+
+    @Test
+    void addUser_AppendsUserAndUnknownFriends() {
+        // When
+        boolean added = graph.addUser(70, new int[]{50, 80, 50});
+
+        // Then
+        assertTrue(added);
+        assertFalse(graph.addUser(70, new int[]{10}));
+        assertTrue(graph.contains(80));
+        assertEquals(8, graph.nodeCount());
+        assertEquals(7, graph.edgeCount());
+        assertArrayEquals(new int[]{50, 80}, graph.neighbours(70, 1, 100));
+        assertArrayEquals(new int[]{50}, graph.mutualFriends(40, 70));
+        assertArrayEquals(new int[]{10, 20, 40, 50}, graph.shortestPath(10, 50, 6));
+    }
+
+    @Test
+    void addUser_FriendRegisteringLater_KeepsItsFriends() {
+        // Given: 80 is only known as 70's friend
+        graph.addUser(70, new int[]{80});
+
+        // When
+        boolean added = graph.addUser(80, new int[]{10, 70});
+
+        // Then
+        assertTrue(added);
+        assertFalse(graph.addUser(80, new int[]{20}));
+        assertEquals(8, graph.nodeCount());
+        assertEquals(8, graph.edgeCount());
+        assertArrayEquals(new int[]{10, 70}, graph.neighbours(80, 1, 100));
+        assertArrayEquals(new int[]{80}, graph.neighbours(70, 1, 100));
+        assertArrayEquals(new int[]{70, 80, 10, 20, 40, 50}, graph.shortestPath(70, 50, 6));
+        // Rows after the filled one still point at the right friends
+        assertArrayEquals(new int[]{20, 30}, graph.neighbours(10, 1, 100));
+        assertArrayEquals(new int[]{50}, graph.neighbours(40, 1, 100));
+    }
+
+    @Test
+    void addUser_GrowsFromEmptyGraph() {
+        // Given
+        CsrGraph empty = new CsrGraph();
+
+        // When
+        for (int dni = 1; dni <= 100; dni++) {
+            empty.addUser(dni, dni == 1 ? new int[0] : new int[]{dni - 1});
+        }
+
+        // Then
+        assertEquals(100, empty.nodeCount());
+        assertEquals(99, empty.edgeCount());
+        assertEquals(99, empty.shortestPath(100, 1, 100).length - 1);
+    }
+}
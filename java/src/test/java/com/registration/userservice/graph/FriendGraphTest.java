@@ -0,0 +1,127 @@
+package com.registration.userservice.graph;
+
+import com.registration.userservice.repository.FriendEdge;
+import com.registration.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FriendGraphTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private FriendGraph friendGraph;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(friendGraph, "enabled", true);
+        ReflectionTestUtils.setField(friendGraph, "maxHops", 2);
+        ReflectionTestUtils.setField(friendGraph, "maxResults", 100);
+        ReflectionTestUtils.setField(friendGraph, "maxPathHops", 6);
+        friendGraph.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_IndexesUsersAndFriendRows() {
+        // Given
+        givenFriendTable();
+
+        // When
+        friendGraph.load();
+
+        // Then
+        assertTrue(friendGraph.isLoaded());
+        assertArrayEquals(new int[]{20, 30}, friendGraph.neighbours(10, 2).orElseThrow());
+        assertArrayEquals(new int[]{10, 20, 30}, friendGraph.shortestPath(10, 30).orElseThrow());
+        assertTrue(friendGraph.mutualFriends(10, 99).isEmpty());
+        assertEquals(3, meterRegistry.get("users.friend.graph.users").gauge().value());
+        assertEquals(2, meterRegistry.get("users.friend.graph.friendships").gauge().value());
+    }
+
+    @Test
+    void neighbours_CapsHopsAtMaxHops() {
+        // Given
+        givenFriendTable();
+        friendGraph.load();
+        friendGraph.recordUser(40, new int[]{10});
+
+        // When / Then
+        assertArrayEquals(new int[]{10, 20}, friendGraph.neighbours(40, 10).orElseThrow());
+    }
+
+    @Test
+    void recordUser_BeforeLoad_IsAppliedOnceLoaded() {
+        // Given
+        givenFriendTable();
+
+        // When
+        friendGraph.recordUser(40, new int[]{30});
+        friendGraph.load();
+
+        // Then
+        assertArrayEquals(new int[]{30}, friendGraph.neighbours(40, 1).orElseThrow());
+    }
+
+    @Test
+    void recordUser_InTransaction_WaitsForCommit() {
+        // Given
+        givenFriendTable();
+        friendGraph.load();
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        friendGraph.recordUser(40, new int[]{30});
+
+        // Then
+        assertTrue(friendGraph.neighbours(40, 1).isEmpty());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertArrayEquals(new int[]{30}, friendGraph.neighbours(40, 1).orElseThrow());
+    }
+
+    @Test
+    void disabled_NeverLoads() {
+        // Given
+        ReflectionTestUtils.setField(friendGraph, "enabled", false);
+
+        // When
+        friendGraph.load();
+        friendGraph.recordUser(40, new int[0]);
+
+        // Then
+        assertFalse(friendGraph.isLoaded());
+        verifyNoInteractions(userRepository);
+    }
+
+    private void givenFriendTable() {
+        when(userRepository.streamAllDnis()).thenReturn(Stream.of(10, 20, 30));
+        when(userRepository.streamFriendEdges()).thenReturn(Stream.of(new FriendEdge(10, 20), new FriendEdge(20, 30)));
+    }
+}
@@ -48,7 +48,7 @@ class RabbitMQIntegrationTest {
                 .friendsDni(Arrays.asList(87654321, 11111111))
                 .build();
 
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(request));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(request, null, null, null, null));
     }
 
     @Test
@@ -3,6 +3,8 @@ package com.registration.userservice.integration;
 import com.registration.userservice.config.RabbitMQConfig;
 import com.registration.userservice.dto.PersistenceResponse;
 import com.registration.userservice.service.RabbitMQPublisher;
+import com.registration.userservice.service.RegistrationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,8 @@ import org.springframework.test.context.ActiveProfiles;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
 
-@SpringBootTest(classes = {RabbitMQPublisher.class, RabbitMQConfig.class})
+@SpringBootTest(classes = {RabbitMQPublisher.class, RabbitMQConfig.class, RegistrationMetrics.class,
+        SimpleMeterRegistry.class})
 @ActiveProfiles("test")
 class RabbitMQPublisherIntegrationTest {
 
@@ -5,6 +5,9 @@ import com.registration.userservice.dto.RegistrationRequest;
 import com.registration.userservice.entity.User;
 import com.registration.userservice.repository.UserRepository;
 import com.registration.userservice.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +18,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +34,9 @@ class UserServiceIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private RegistrationRequest validRequest;
 
     @BeforeEach
@@ -266,4 +273,73 @@ class UserServiceIntegrationTest {
         assertEquals(1, result.getFriends().size());
         assertEquals(20202020, result.getFriends().iterator().next().getDni());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void persistUsers_Batch_SavesAllAndLinksFriendsWithinBatch() {
+        // Arrange
+        RegistrationRequest first = RegistrationRequest.builder()
+                .dni(30303030)
+                .nombre("Batch One")
+                .correo("batch1@test.com")
+                .clave(1111)
+                .telefono(111111111)
+                .build();
+        RegistrationRequest second = RegistrationRequest.builder()
+                .dni(40404040)
+                .nombre("Batch Two")
+                .correo("batch2@test.com")
+                .clave(2222)
+                .telefono(222222222)
+                .friendsDni(Arrays.asList(30303030, 99999999))
+                .build();
+
+        // Act
+        List<PersistenceResponse> responses = userService.persistUsers(List.of(first, second));
+
+        // Assert
+        assertEquals(2, responses.size());
+        assertTrue(responses.stream().allMatch(r -> "SUCCESS".equals(r.getStatus())));
+        assertEquals(2, userRepository.count());
+
+        User savedSecond = userService.findByDni(40404040);
+        assertNotNull(savedSecond);
+        assertEquals(1, savedSecond.getFriends().size());
+        assertEquals(30303030, savedSecond.getFriends().iterator().next().getDni());
+    }
+
+    @Test
+    void persistUser_OptimisticInsert_UsesFewerRoundTripsThanCheckThenSave() {
+        // Arrange
+        userRepository.save(User.builder().dni(50505050).nombre("Friend A").correo("frienda@test.com")
+                .clave(1111).telefono(111111111).build());
+        userRepository.save(User.builder().dni(60606060).nombre("Friend B").correo("friendb@test.com")
+                .clave(2222).telefono(222222222).build());
+        userRepository.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Before: the previous persistUser flow (exists checks, save, findByDni per friend, second save)
+        statistics.clear();
+        if (!userRepository.existsByDni(70707070) && !userRepository.existsByCorreo("before@test.com")) {
+            User before = userRepository.save(User.builder().dni(70707070).nombre("Before")
+                    .correo("before@test.com").clave(3333).telefono(333333333).build());
+            userRepository.findByDni(50505050).ifPresent(before::addFriend);
+            userRepository.findByDni(60606060).ifPresent(before::addFriend);
+            userRepository.saveAndFlush(before);
+        }
+        long checkThenSaveStatements = statistics.getPrepareStatementCount();
+
+        // After: optimistic insert with bulk friend resolution
+        validRequest.setDni(80808080);
+        validRequest.setCorreo("after@test.com");
+        validRequest.setFriendsDni(Arrays.asList(50505050, 60606060));
+        statistics.clear();
+        PersistenceResponse response = userService.persistUser(validRequest);
+        long optimisticStatements = statistics.getPrepareStatementCount();
+
+        // Assert
+        assertEquals("SUCCESS", response.getStatus());
+        assertEquals(2, userService.findByDni(80808080).getFriends().size());
+        assertTrue(optimisticStatements < checkThenSaveStatements,
+                "expected fewer than " + checkThenSaveStatements + " statements, got " + optimisticStatements);
+    }
+}
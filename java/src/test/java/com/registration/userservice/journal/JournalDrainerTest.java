@@ -0,0 +1,155 @@
+package com.registration.userservice.journal;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.KeyedRegistrationLocks;
+import com.registration.userservice.service.ProcessedRegistrations;
+import com.registration.userservice.service.RabbitMQPublisher;
+import com.registration.userservice.service.TransientPersistenceException;
+import com.registration.userservice.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JournalDrainerTest {
+
+    @Mock
+    private RegistrationJournal journal;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private RabbitMQPublisher rabbitMQPublisher;
+
+    @Mock
+    private ProcessedRegistrations processedRegistrations;
+
+    @Spy
+    private KeyedRegistrationLocks keyLocks = new KeyedRegistrationLocks(16, new SimpleMeterRegistry());
+
+    @InjectMocks
+    private JournalDrainer drainer;
+
+    private RegistrationRequest request;
+    private PersistenceResponse success;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(drainer, "batchSize", 100);
+        request = RegistrationRequest.builder()
+                .dni(12345678)
+                .nombre("John Doe")
+                .correo("john.doe@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        success = PersistenceResponse.builder()
+                .dni(12345678)
+                .status("SUCCESS")
+                .message("User registered successfully with DNI: 12345678")
+                .build();
+    }
+
+    @Test
+    void drainOnce_PersistsBatchThenMarksDrainedAndPublishes() {
+        // Given
+        when(journal.readPending(100)).thenReturn(new RegistrationJournal.Pending(List.of(request), 16, new int[] {64}));
+        when(userService.persistUsers(List.of(request))).thenReturn(List.of(success));
+
+        // When
+        int drained = drainer.drainOnce();
+
+        // Then
+        assertEquals(1, drained);
+        verify(journal).markDrained(64);
+        verify(processedRegistrations).record(null, request, success);
+        verify(rabbitMQPublisher).publishPersistenceResponse(success);
+    }
+
+    @Test
+    void drainOnce_DatabaseUnavailable_KeepsRecordsJournaled() {
+        // Given
+        when(journal.readPending(100)).thenReturn(new RegistrationJournal.Pending(List.of(request), 16, new int[] {64}));
+        when(userService.persistUsers(any())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // When / Then
+        assertThrows(DataAccessResourceFailureException.class, () -> drainer.drainOnce());
+        verify(journal, never()).markDrained(anyInt());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+    }
+
+    @Test
+    void drainOnce_BatchFails_FallsBackToOneByOne() {
+        // Given
+        when(journal.readPending(100)).thenReturn(new RegistrationJournal.Pending(List.of(request), 16, new int[] {64}));
+        when(userService.persistUsers(any())).thenThrow(new IllegalStateException("constraint violation"));
+        when(userService.persistUser(request)).thenReturn(success);
+
+        // When
+        drainer.drainOnce();
+
+        // Then
+        verify(journal).markDrained(64);
+        verify(rabbitMQPublisher).publishPersistenceResponse(success);
+    }
+
+    @Test
+    void drainOnce_TransientFailureOneByOne_KeepsItAndTheRestJournaled() {
+        // Given
+        RegistrationRequest second = request(23456789);
+        RegistrationRequest third = request(34567890);
+        PersistenceResponse failed = PersistenceResponse.builder()
+                .dni(23456789)
+                .status("FAILED")
+                .message("Transient database error")
+                .build();
+        when(journal.readPending(100)).thenReturn(
+                new RegistrationJournal.Pending(List.of(request, second, third), 16, new int[] {64, 112, 160}));
+        when(userService.persistUsers(any())).thenThrow(new IllegalStateException("constraint violation"));
+        when(userService.persistUser(request)).thenReturn(success);
+        when(userService.persistUser(second)).thenThrow(new TransientPersistenceException(failed, null));
+
+        // When / Then
+        assertThrows(TransientPersistenceException.class, () -> drainer.drainOnce());
+        verify(journal).markDrained(64);
+        verify(userService, never()).persistUser(third);
+        verify(rabbitMQPublisher).publishPersistenceResponse(success);
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(failed);
+    }
+
+    @Test
+    void drainOnce_NothingPending_ReturnsZero() {
+        // Given
+        when(journal.readPending(100)).thenReturn(new RegistrationJournal.Pending(List.of(), 16, new int[0]));
+
+        // When / Then
+        assertEquals(0, drainer.drainOnce());
+        verifyNoInteractions(userService);
+    }
+
+    private static RegistrationRequest request(int dni) {
+        return RegistrationRequest.builder()
+                .dni(dni)
+                .nombre("User " + dni)
+                .correo("user" + dni + "@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.registration.userservice.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private RegistrationJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void append_RecordsAreReadBackInOrder() throws IOException {
+        // Given
+        journal = open(4096);
+
+        // When
+        assertTrue(journal.append(request(1)));
+        assertTrue(journal.appendAll(List.of(request(2), request(3))).isEmpty());
+
+        // Then
+        RegistrationJournal.Pending pending = journal.readPending(10);
+        assertEquals(List.of(request(1), request(2), request(3)), pending.requests());
+        assertEquals(List.of(request(1), request(2)), journal.readPending(2).requests());
+    }
+
+    @Test
+    void open_RecoversRecordsNotDrainedBeforeRestart() throws IOException {
+        // Given
+        journal = open(4096);
+        journal.appendAll(List.of(request(1), request(2), request(3)));
+        journal.markDrained(journal.readPending(1).endPosition());
+        journal.close();
+
+        // When
+        journal = open(4096);
+
+        // Then
+        assertEquals(List.of(request(2), request(3)), journal.readPending(10).requests());
+    }
+
+    @Test
+    void markDrained_UpToARecord_KeepsTheOnesAfterIt() throws IOException {
+        // Given
+        journal = open(4096);
+        journal.appendAll(List.of(request(1), request(2), request(3)));
+        RegistrationJournal.Pending pending = journal.readPending(10);
+
+        // When
+        journal.markDrained(pending.endPosition(1));
+
+        // Then
+        assertEquals(pending.endPosition(), pending.endPosition(3));
+        assertEquals(List.of(request(2), request(3)), journal.readPending(10).requests());
+    }
+
+    @Test
+    void open_DiscardsTornRecord() throws IOException {
+        // Given
+        journal = open(4096);
+        journal.appendAll(List.of(request(1), request(2)));
+        int secondRecord = journal.readPending(1).endPosition();
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile().toFile(), "rw")) {
+            file.seek(secondRecord + 10);
+            file.write(0x7F);
+        }
+
+        // When
+        journal = open(4096);
+
+        // Then
+        assertEquals(List.of(request(1)), journal.readPending(10).requests());
+        assertTrue(journal.append(request(3)));
+        assertEquals(List.of(request(1), request(3)), journal.readPending(10).requests());
+    }
+
+    @Test
+    void appendAll_JournalFull_ReturnsRejectedRequests() throws IOException {
+        // Given
+        journal = open(RegistrationJournal.HEADER_BYTES + 200);
+
+        // When
+        List<RegistrationRequest> rejected = journal.appendAll(List.of(request(1), request(2)));
+
+        // Then
+        assertEquals(List.of(request(2)), rejected);
+        assertEquals(List.of(request(1)), journal.readPending(10).requests());
+    }
+
+    @Test
+    void markDrained_AllDrained_ReusesJournalFromTheTop() throws IOException {
+        // Given
+        journal = open(RegistrationJournal.HEADER_BYTES + 200);
+        journal.append(request(1));
+        journal.markDrained(journal.readPending(10).endPosition());
+
+        // When
+        boolean appended = journal.append(request(2));
+
+        // Then
+        assertTrue(appended);
+        assertEquals(List.of(request(2)), journal.readPending(10).requests());
+    }
+
+    @Test
+    void append_Disabled_ReturnsFalse() throws IOException {
+        // Given
+        journal = new RegistrationJournal(new ObjectMapper(), new SimpleMeterRegistry());
+        journal.open();
+
+        // When / Then
+        assertFalse(journal.append(request(1)));
+        assertEquals(List.of(request(1)), journal.appendAll(List.of(request(1))));
+    }
+
+    private RegistrationJournal open(int sizeBytes) throws IOException {
+        RegistrationJournal opened = new RegistrationJournal(new ObjectMapper(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(opened, "enabled", true);
+        ReflectionTestUtils.setField(opened, "path", journalFile().toString());
+        ReflectionTestUtils.setField(opened, "sizeBytes", sizeBytes);
+        opened.open();
+        return opened;
+    }
+
+    private Path journalFile() {
+        return directory.resolve("registrations.journal");
+    }
+
+    private static RegistrationRequest request(int dni) {
+        return RegistrationRequest.builder()
+                .dni(dni)
+                .nombre("User " + dni)
+                .correo("user" + dni + "@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .friendsDni(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.registration.userservice.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionMembershipTest {
+
+    private final PartitionMembership membership = new PartitionMembership("lp1-a", 6000);
+
+    @Test
+    void heartbeat_NewNode_ChangesMembers() {
+        assertTrue(membership.heartbeat("lp1-b", 1000));
+        assertFalse(membership.heartbeat("lp1-b", 3000));
+        assertEquals(Set.of("lp1-a", "lp1-b"), membership.members());
+    }
+
+    @Test
+    void heartbeat_LocalNode_IsNotAChange() {
+        assertFalse(membership.heartbeat("lp1-a", 1000));
+        assertEquals(Set.of("lp1-a"), membership.members());
+    }
+
+    @Test
+    void expire_SilentNode_IsRemoved() {
+        // Given
+        membership.heartbeat("lp1-a", 0);
+        membership.heartbeat("lp1-b", 1000);
+        membership.heartbeat("lp1-c", 5000);
+
+        // When
+        boolean changed = membership.expire(8000);
+
+        // Then: the local node never expires
+        assertTrue(changed);
+        assertEquals(Set.of("lp1-a", "lp1-c"), membership.members());
+        assertFalse(membership.expire(8000));
+    }
+
+    @Test
+    void leave_RemovesNodeButNeverTheLocalOne() {
+        membership.heartbeat("lp1-b", 1000);
+
+        assertTrue(membership.leave("lp1-b"));
+        assertFalse(membership.leave("lp1-b"));
+        assertFalse(membership.leave("lp1-a"));
+        assertEquals(Set.of("lp1-a"), membership.members());
+    }
+}
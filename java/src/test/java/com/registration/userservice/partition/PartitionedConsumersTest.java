@@ -0,0 +1,233 @@
+package com.registration.userservice.partition;
+
+import com.rabbitmq.client.Channel;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.RabbitMQConsumer;
+import com.registration.userservice.service.RegistrationDeadlines;
+import com.registration.userservice.service.RegistrationLanes;
+import com.registration.userservice.service.RegistrationRetries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionedConsumersTest {
+
+    private static final long DELIVERY_TAG = 7L;
+
+    @Mock
+    private SimpleRabbitListenerContainerFactory containerFactory;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitMQConsumer consumer;
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private RabbitTemplate routingTemplate;
+
+    @Mock
+    private Channel channel;
+
+    private final Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PartitionedConsumers partitionedConsumers;
+
+    @BeforeEach
+    void setUp() {
+        partitionedConsumers = new PartitionedConsumers(containerFactory, rabbitTemplate, converter, consumer,
+                new AnonymousQueue(), meterRegistry);
+        ReflectionTestUtils.setField(partitionedConsumers, "exchangeName", "registro_bus");
+        ReflectionTestUtils.setField(partitionedConsumers, "persistQueue", "queue_lp1");
+        ReflectionTestUtils.setField(partitionedConsumers, "persistRoutingKey", "lp1.persist");
+        ReflectionTestUtils.setField(partitionedConsumers, "shards", 16);
+        ReflectionTestUtils.setField(partitionedConsumers, "memberTimeoutMs", 6000L);
+        ReflectionTestUtils.setField(partitionedConsumers, "confirmTimeoutMs", 100L);
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        when(connectionFactory.isPublisherReturns()).thenReturn(true);
+        partitionedConsumers.init();
+        ReflectionTestUtils.setField(partitionedConsumers, "routingTemplate", routingTemplate);
+    }
+
+    @Test
+    void init_RoutesThroughAMandatoryTemplate() {
+        // When
+        partitionedConsumers.init();
+
+        // Then
+        RabbitTemplate template = (RabbitTemplate) ReflectionTestUtils.getField(partitionedConsumers, "routingTemplate");
+        assertTrue(template.isMandatoryFor(registration()));
+    }
+
+    @Test
+    void route_Confirmed_AcksTheOriginal() throws Exception {
+        // Given
+        Message message = registration();
+        confirmWith(true, null);
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then
+        String routingKey = "lp1.persist.shard." + ShardAssignment.shardOf(12345678, 16);
+        verify(routingTemplate).send(eq("registro_bus"), eq(routingKey), eq(message), any(CorrelationData.class));
+        verify(channel).basicAck(DELIVERY_TAG, false);
+        assertEquals(1, meterRegistry.get("rabbitmq.partitions.routed").counter().count());
+    }
+
+    @Test
+    void route_Nacked_RequeuesTheOriginal() throws Exception {
+        // Given
+        Message message = registration();
+        confirmWith(false, null);
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then
+        verify(channel).basicNack(DELIVERY_TAG, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertEquals(0, meterRegistry.get("rabbitmq.partitions.routed").counter().count());
+    }
+
+    @Test
+    void route_Returned_RequeuesTheOriginal() throws Exception {
+        // Given: no shard queue is bound, the broker returns the copy and then acks it
+        Message message = registration();
+        confirmWith(true, new ReturnedMessage(message, 312, "NO_ROUTE", "registro_bus", "lp1.persist.shard.3"));
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then
+        verify(channel).basicNack(DELIVERY_TAG, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void route_NoConfirm_RequeuesTheOriginalAfterTheTimeout() throws Exception {
+        // Given: the confirm never arrives
+        Message message = registration();
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then: the listener thread is not held while waiting
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(channel, timeout(2000)).basicNack(DELIVERY_TAG, false, true);
+        assertEquals(0, meterRegistry.get("rabbitmq.partitions.routed").counter().count());
+    }
+
+    @Test
+    void route_PublishFails_RequeuesTheOriginal() throws Exception {
+        // Given
+        Message message = registration();
+        doThrow(new AmqpConnectException(new ConnectException("connection refused")))
+                .when(routingTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then
+        verify(channel).basicNack(DELIVERY_TAG, false, true);
+    }
+
+    @Test
+    void init_WithoutPublisherConfirms_FailsFast() {
+        // Given
+        when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> partitionedConsumers.init());
+    }
+
+    @Test
+    void init_WithoutPublisherReturns_FailsFast() {
+        // Given
+        when(connectionFactory.isPublisherReturns()).thenReturn(false);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> partitionedConsumers.init());
+    }
+
+    @Test
+    void route_UndecodableMessage_IsRejectedWithoutRequeue() throws Exception {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryTag(DELIVERY_TAG);
+        Message message = new Message("{not json".getBytes(StandardCharsets.UTF_8), properties);
+
+        // When
+        partitionedConsumers.route(message, channel);
+
+        // Then
+        verify(channel).basicNack(DELIVERY_TAG, false, false);
+        verify(routingTemplate, never()).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void consumeShard_PassesCarriedHeadersToConsumer() {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId("msg-1");
+        properties.setHeader(RegistrationRetries.ATTEMPT_HEADER, 2);
+        properties.setHeader(RegistrationDeadlines.DEADLINE_HEADER, 1_700_000_030_000L);
+        properties.setHeader(RegistrationLanes.LANE_HEADER, "bulk");
+        RegistrationRequest request = RegistrationRequest.builder().dni(12345678).correo("john.doe@example.com").build();
+
+        // When
+        partitionedConsumers.consumeShard(converter.toMessage(request, properties));
+
+        // Then
+        verify(consumer).consumeRegistrationRequest(request, "msg-1", 2, 1_700_000_030_000L, "bulk");
+    }
+
+    private Message registration() {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        return converter.toMessage(
+                RegistrationRequest.builder().dni(12345678).correo("john.doe@example.com").build(), properties);
+    }
+
+    private void confirmWith(boolean ack, ReturnedMessage returned) {
+        doAnswer(invocation -> {
+            CorrelationData confirm = invocation.getArgument(3);
+            confirm.setReturned(returned);
+            confirm.getFuture().complete(new CorrelationData.Confirm(ack, "test"));
+            return null;
+        }).when(routingTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+}
@@ -0,0 +1,78 @@
+package com.registration.userservice.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardAssignmentTest {
+
+    private static final int SHARDS = 64;
+
+    @Test
+    void shardOf_SequentialDnis_SpreadOverAllShards() {
+        // Given
+        int[] counts = new int[SHARDS];
+
+        // When
+        for (int dni = 10_000_000; dni < 10_064_000; dni++) {
+            counts[ShardAssignment.shardOf(dni, SHARDS)]++;
+        }
+
+        // Then: 1000 per shard on average
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "unbalanced shard: " + count);
+        }
+    }
+
+    @Test
+    void ownedBy_EveryShardHasExactlyOneOwner() {
+        // Given
+        List<String> members = List.of("lp1-a", "lp1-b", "lp1-c");
+
+        // When
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (String member : members) {
+            Set<Integer> owned = ShardAssignment.ownedBy(member, members, SHARDS);
+            all.addAll(owned);
+            total += owned.size();
+        }
+
+        // Then
+        assertEquals(SHARDS, all.size());
+        assertEquals(SHARDS, total);
+    }
+
+    @Test
+    void ownerOf_NodeJoins_OnlyShardsTakenByNewNodeMove() {
+        // Given
+        List<String> before = List.of("lp1-a", "lp1-b", "lp1-c");
+        List<String> after = List.of("lp1-a", "lp1-b", "lp1-c", "lp1-d");
+
+        // When
+        int moved = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            String oldOwner = ShardAssignment.ownerOf(shard, before);
+            String newOwner = ShardAssignment.ownerOf(shard, after);
+            if (!oldOwner.equals(newOwner)) {
+                // Then
+                assertEquals("lp1-d", newOwner);
+                moved++;
+            }
+        }
+        assertTrue(moved > 0 && moved < SHARDS / 2, "moved " + moved);
+    }
+
+    @Test
+    void ownerOf_MemberOrder_DoesNotMatter() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(ShardAssignment.ownerOf(shard, List.of("lp1-a", "lp1-b")),
+                    ShardAssignment.ownerOf(shard, List.of("lp1-b", "lp1-a")));
+        }
+    }
+}
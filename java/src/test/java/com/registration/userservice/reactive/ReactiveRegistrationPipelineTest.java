@@ -0,0 +1,172 @@
+package com.registration.userservice.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Envelope;
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.ProcessedRegistrations;
+import com.registration.userservice.service.RegistrationMetrics;
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import com.registration.userservice.service.RegistrationRetries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.CorrelableOutboundMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ReactiveRegistrationPipelineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RegistrationMetrics metrics = new RegistrationMetrics(new SimpleMeterRegistry());
+    private ReactiveUserWriter userWriter;
+    private ProcessedRegistrations processedRegistrations;
+    private RegistrationRetries retries;
+    private ReactiveRegistrationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        userWriter = mock(ReactiveUserWriter.class);
+        processedRegistrations = mock(ProcessedRegistrations.class);
+        retries = mock(RegistrationRetries.class);
+        pipeline = new ReactiveRegistrationPipeline(null, null, null, new Jackson2JsonMessageConverter(),
+                userWriter, processedRegistrations, metrics, retries);
+        ReflectionTestUtils.setField(pipeline, "exchangeName", "registro_bus");
+        ReflectionTestUtils.setField(pipeline, "persistedRoutingKey", "lp1.persisted");
+    }
+
+    @Test
+    void process_ValidRequest_RepliesWithPersistenceResponse() throws Exception {
+        // Given
+        RegistrationRequest request = request(12345678);
+        AcknowledgableDelivery delivery = delivery(objectMapper.writeValueAsBytes(request));
+        PersistenceResponse success = ReactiveUserWriter.response(12345678, "SUCCESS", "registered");
+        when(userWriter.persistUser(request)).thenReturn(Mono.just(success));
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertNotNull(reply);
+        assertEquals("lp1.persisted", reply.getRoutingKey());
+        assertSame(delivery, reply.getCorrelationMetadata());
+        assertEquals("SUCCESS", objectMapper.readTree(reply.getBody()).get("status").asText());
+        verify(processedRegistrations).record(null, request, success);
+        verify(delivery, never()).ack();
+    }
+
+    @Test
+    void process_InvalidRequest_RepliesFailedWithoutPersisting() throws Exception {
+        // Given
+        RegistrationRequest request = request(12345678);
+        request.setCorreo(null);
+        AcknowledgableDelivery delivery = delivery(objectMapper.writeValueAsBytes(request));
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertEquals("Invalid request: Email is required",
+                objectMapper.readTree(reply.getBody()).get("message").asText());
+        verifyNoInteractions(userWriter);
+        assertEquals(1, metrics.outcomeCount(Outcome.INVALID_REQUEST));
+    }
+
+    @Test
+    void process_DatabaseError_RepliesFailed() throws Exception {
+        // Given
+        RegistrationRequest request = request(12345678);
+        AcknowledgableDelivery delivery = delivery(objectMapper.writeValueAsBytes(request));
+        when(userWriter.persistUser(any())).thenReturn(Mono.error(new IllegalStateException("connection lost")));
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertEquals("Unexpected error: connection lost",
+                objectMapper.readTree(reply.getBody()).get("message").asText());
+        assertEquals(1, metrics.outcomeCount(Outcome.ERROR));
+        verify(processedRegistrations, never()).record(any(), any(), any());
+    }
+
+    @Test
+    void process_TransientDatabaseError_SchedulesRetryAndAcksWithoutReply() throws Exception {
+        // Given
+        RegistrationRequest request = request(12345678);
+        AcknowledgableDelivery delivery = delivery(objectMapper.writeValueAsBytes(request));
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("connection refused");
+        when(userWriter.persistUser(any())).thenReturn(Mono.error(failure));
+        when(retries.retry(eq(request), any(), isNull(), any(), eq(failure))).thenReturn(true);
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertNull(reply);
+        verify(delivery).ack();
+        assertEquals(0, metrics.outcomeCount(Outcome.ERROR));
+    }
+
+    @Test
+    void process_TransientDatabaseErrorRetriesExhausted_RepliesFailed() throws Exception {
+        // Given
+        RegistrationRequest request = request(12345678);
+        AcknowledgableDelivery delivery = delivery(objectMapper.writeValueAsBytes(request));
+        when(userWriter.persistUser(any())).thenReturn(
+                Mono.error(new DataAccessResourceFailureException("connection refused")));
+        when(retries.retry(any(), any(), any(), any(), any())).thenReturn(false);
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertEquals("Unexpected error: connection refused",
+                objectMapper.readTree(reply.getBody()).get("message").asText());
+        verify(delivery, never()).ack();
+        assertEquals(1, metrics.outcomeCount(Outcome.ERROR));
+    }
+
+    @Test
+    void process_UndecodableMessage_RejectedWithoutRequeue() {
+        // Given
+        AcknowledgableDelivery delivery = delivery("{not json".getBytes());
+
+        // When
+        CorrelableOutboundMessage<AcknowledgableDelivery> reply = pipeline.process(delivery).block();
+
+        // Then
+        assertNull(reply);
+        verify(delivery).nack(false);
+        verifyNoInteractions(userWriter);
+    }
+
+    private static AcknowledgableDelivery delivery(byte[] body) {
+        AcknowledgableDelivery delivery = mock(AcknowledgableDelivery.class);
+        when(delivery.getBody()).thenReturn(body);
+        when(delivery.getProperties()).thenReturn(new AMQP.BasicProperties.Builder()
+                .contentType("application/json")
+                .build());
+        when(delivery.getEnvelope()).thenReturn(new Envelope(1L, false, "registro_bus", "lp1.persist"));
+        return delivery;
+    }
+
+    private static RegistrationRequest request(int dni) {
+        return RegistrationRequest.builder()
+                .nombre("John Doe")
+                .correo("john.doe@example.com")
+                .clave(1234)
+                .dni(dni)
+                .telefono(987654321)
+                .build();
+    }
+}
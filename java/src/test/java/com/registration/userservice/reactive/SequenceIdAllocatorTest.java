@@ -0,0 +1,48 @@
+package com.registration.userservice.reactive;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceIdAllocatorTest {
+
+    @Test
+    void nextId_OneSequenceCallPerBlock() {
+        // Given
+        AtomicLong sequence = new AtomicLong(100);
+        AtomicInteger calls = new AtomicInteger();
+        SequenceIdAllocator allocator = new SequenceIdAllocator(() -> {
+            calls.incrementAndGet();
+            return Mono.just(sequence.getAndAdd(3));
+        }, 3);
+
+        // When / Then
+        assertEquals(98, allocator.nextId().block());
+        assertEquals(99, allocator.nextId().block());
+        assertEquals(100, allocator.nextId().block());
+        assertEquals(1, calls.get());
+        assertEquals(101, allocator.nextId().block());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void nextId_NothingFetchedUntilSubscribed() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        SequenceIdAllocator allocator = new SequenceIdAllocator(() -> {
+            calls.incrementAndGet();
+            return Mono.just(50L);
+        }, 50);
+
+        // When
+        Mono<Integer> id = allocator.nextId();
+
+        // Then
+        assertEquals(0, calls.get());
+        assertEquals(1, id.block());
+    }
+}
@@ -1,5 +1,6 @@
 package com.registration.userservice.repository;
 
+import com.registration.userservice.dto.UserResponse;
 import com.registration.userservice.entity.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.Arrays;
@@ -151,50 +153,71 @@ class UserRepositoryTest {
     }
 
     @Test
-    @DisplayName("Should find users by DNI list")
-    void shouldFindUsersByDniList() {
+    @DisplayName("Should project friend DNIs ordered by DNI")
+    void shouldFindFriendDnis() {
         // Given
-        List<Integer> dnis = Arrays.asList(12345678, 87654321, 99999999);
+        user1.addFriend(user2);
+        user1.addFriend(user3);
+        userRepository.save(user1);
+        entityManager.flush();
+        entityManager.clear();
 
         // When
-        List<User> found = userRepository.findByDniIn(dnis);
+        List<Integer> friendDnis = userRepository.findFriendDnis(12345678);
 
         // Then
-        assertEquals(2, found.size());
-        assertTrue(found.stream().anyMatch(u -> u.getDni().equals(12345678)));
-        assertTrue(found.stream().anyMatch(u -> u.getDni().equals(87654321)));
+        assertEquals(List.of(11111111, 87654321), friendDnis);
+        assertTrue(userRepository.findFriendDnis(87654321).isEmpty());
     }
 
     @Test
-    @DisplayName("Should find users with friends by DNI list")
-    void shouldFindUsersWithFriendsByDniList() {
+    @DisplayName("Should page friends by DNI keyset")
+    void shouldPageFriendsByDni() {
         // Given
         user1.addFriend(user2);
-        user2.addFriend(user3);
+        user1.addFriend(user3);
         userRepository.save(user1);
-        userRepository.save(user2);
         entityManager.flush();
         entityManager.clear();
 
-        List<Integer> dnis = Arrays.asList(12345678, 87654321);
+        // When
+        List<UserResponse> firstPage = userRepository.findFriendsPage(12345678, Integer.MIN_VALUE, Limit.of(1));
+        List<UserResponse> secondPage = userRepository.findFriendsPage(12345678, 11111111, Limit.of(1));
+        List<UserResponse> lastPage = userRepository.findFriendsPage(12345678, 87654321, Limit.of(1));
+
+        // Then
+        assertEquals(List.of(11111111), firstPage.stream().map(UserResponse::getDni).toList());
+        assertEquals(List.of(87654321), secondPage.stream().map(UserResponse::getDni).toList());
+        assertEquals("maria.garcia@example.com", secondPage.get(0).getCorreo());
+        assertTrue(lastPage.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find users by DNI list")
+    void shouldFindUsersByDniList() {
+        // Given
+        List<Integer> dnis = Arrays.asList(12345678, 87654321, 99999999);
 
         // When
-        List<User> found = userRepository.findByDniInWithFriends(dnis);
+        List<User> found = userRepository.findByDniIn(dnis);
 
         // Then
         assertEquals(2, found.size());
-        
-        User foundUser1 = found.stream()
-                .filter(u -> u.getDni().equals(12345678))
-                .findFirst().orElse(null);
-        assertNotNull(foundUser1);
-        assertEquals(1, foundUser1.getFriends().size());
-
-        User foundUser2 = found.stream()
-                .filter(u -> u.getDni().equals(87654321))
-                .findFirst().orElse(null);
-        assertNotNull(foundUser2);
-        assertEquals(1, foundUser2.getFriends().size());
+        assertTrue(found.stream().anyMatch(u -> u.getDni().equals(12345678)));
+        assertTrue(found.stream().anyMatch(u -> u.getDni().equals(87654321)));
+    }
+
+    @Test
+    @DisplayName("Should return only existing DNIs and emails")
+    void shouldReturnExistingDnisAndCorreos() {
+        // When
+        List<Integer> dnis = userRepository.findExistingDnis(Arrays.asList(12345678, 99999999));
+        List<String> correos = userRepository.findExistingCorreos(
+                Arrays.asList("maria.garcia@example.com", "notfound@example.com"));
+
+        // Then
+        assertEquals(List.of(12345678), dnis);
+        assertEquals(List.of("maria.garcia@example.com"), correos);
     }
 
     @Test
@@ -0,0 +1,137 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.service.AdmissionController.Limits;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionControllerTest {
+
+    @Mock
+    private HikariDataSource dataSource;
+
+    @Mock
+    private HikariPoolMXBean pool;
+
+    @Mock
+    private RabbitListenerEndpointRegistry endpointRegistry;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RegistrationMetrics metrics = new RegistrationMetrics(meterRegistry);
+    private AdmissionController controller;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        lenient().when(dataSource.getMaximumPoolSize()).thenReturn(10);
+
+        controller = new AdmissionController(dataSource, endpointRegistry, metrics, meterRegistry);
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "targetAcquireMs", 50.0);
+        ReflectionTestUtils.setField(controller, "targetPersistMs", 250.0);
+        ReflectionTestUtils.setField(controller, "minConcurrency", 1);
+        ReflectionTestUtils.setField(controller, "admitWaitMs", 20L);
+        ReflectionTestUtils.setField(controller, "initialConcurrency", 5);
+        ReflectionTestUtils.setField(controller, "maxConcurrency", 10);
+        ReflectionTestUtils.setField(controller, "maxPrefetch", 10);
+        controller.init();
+    }
+
+    @Test
+    void next_ConnectionWaitOverTarget_ShrinksConcurrencyAndPrefetch() {
+        // When
+        Limits next = controller.next(new Limits(8, 10), 120, 80, 4);
+
+        // Then
+        assertEquals(new Limits(6, 5), next);
+        assertEquals(1, meterRegistry.get("registration.admission.saturated").gauge().value());
+    }
+
+    @Test
+    void next_PersistLatencyOverTarget_ShrinksDownToMinimum() {
+        Limits limits = new Limits(3, 2);
+        for (int i = 0; i < 5; i++) {
+            limits = controller.next(limits, Double.NaN, 900, 0);
+        }
+        assertEquals(new Limits(1, 1), limits);
+    }
+
+    @Test
+    void next_HealthyWithTraffic_GrowsByOneUpToMaximum() {
+        assertEquals(new Limits(6, 4), controller.next(new Limits(5, 3), 2, 40, 0));
+        assertEquals(new Limits(10, 10), controller.next(new Limits(10, 10), 2, 40, 0));
+    }
+
+    @Test
+    void next_BatchTrafficOnlyOnConnectionWait_GrowsByOne() {
+        // The batch listener records no persistUser samples
+        assertEquals(new Limits(6, 4), controller.next(new Limits(5, 3), 2, Double.NaN, 0));
+    }
+
+    @Test
+    void next_NoTraffic_KeepsLimits() {
+        assertEquals(new Limits(5, 3), controller.next(new Limits(5, 3), Double.NaN, Double.NaN, 0));
+    }
+
+    @Test
+    void next_SlowAcquireWithoutWaitingThreads_IsNotSaturated() {
+        // A slow acquire in the last interval that no longer has threads waiting
+        assertEquals(new Limits(6, 4), controller.next(new Limits(5, 3), 120, 40, 0));
+    }
+
+    @Test
+    void admit_PoolNotExhausted_Admits() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(3);
+
+        assertTrue(controller.admit());
+    }
+
+    @Test
+    void admit_PoolStaysExhausted_RejectsAfterWaiting() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(10);
+
+        assertFalse(controller.admit());
+        assertEquals(1, meterRegistry.get("registration.admission.rejected").counter().count());
+    }
+
+    @Test
+    void admit_PoolDrainsWhileWaiting_Admits() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(12, 11, 4);
+
+        assertTrue(controller.admit());
+    }
+
+    @Test
+    void adjust_AppliesNewLimitsToRunningListener() {
+        // Given: one persist of 900 ms in the last interval
+        SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        when(endpointRegistry.getListenerContainer(RabbitMQConsumer.LISTENER_ID)).thenReturn(container);
+        metrics.persist(false).record(Duration.ofMillis(900));
+
+        // When
+        controller.adjust();
+
+        // Then: 5 consumers lose one, prefetch 10 halves
+        verify(container).setConcurrentConsumers(4);
+        verify(container).setMaxConcurrentConsumers(4);
+        verify(container).setPrefetchCount(5);
+        assertEquals(4, meterRegistry.get("registration.admission.concurrency").gauge().value());
+    }
+}
@@ -0,0 +1,186 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedRegistrationLocksTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeyedRegistrationLocks locks = new KeyedRegistrationLocks(1024, meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stripeCount_RoundsUpToPowerOfTwo() {
+        assertEquals(1024, locks.stripeCount());
+        assertEquals(8, new KeyedRegistrationLocks(5, meterRegistry).stripeCount());
+        assertEquals(1, new KeyedRegistrationLocks(1, meterRegistry).stripeCount());
+    }
+
+    @Test
+    void withKeys_DifferentKeys_RunInParallel() throws Exception {
+        // Given: the first registration only finishes once the second one is running
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        Future<Boolean> first = executor.submit(() -> locks.withKeys(request(1, "a@example.com"),
+                () -> await(secondStarted)));
+        Thread.sleep(50);
+
+        // When
+        Future<Boolean> second = executor.submit(() -> locks.withKeys(request(2, "b@example.com"), () -> {
+            secondStarted.countDown();
+            return true;
+        }));
+
+        // Then
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void withKeys_ConcurrentDuplicateBursts_EachKeyRegisteredOnce() throws Exception {
+        // Given: a check-then-insert "table" that double-registers whenever two duplicates overlap
+        Set<Integer> dnis = ConcurrentHashMap.newKeySet();
+        Set<String> correos = ConcurrentHashMap.newKeySet();
+        Map<Integer, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger doubleRegistered = new AtomicInteger();
+
+        // 50 users, each arriving 20 times: same DNI and email, or same DNI with another email,
+        // or another DNI with the same email
+        List<RegistrationRequest> burst = new ArrayList<>();
+        for (int copy = 0; copy < 20; copy++) {
+            for (int user = 0; user < 50; user++) {
+                switch (copy % 3) {
+                    case 0 -> burst.add(request(10_000_000 + user, "user" + user + "@example.com"));
+                    case 1 -> burst.add(request(10_000_000 + user, "other" + user + "-" + copy + "@example.com"));
+                    default -> burst.add(request(20_000_000 + user * 100 + copy, "user" + user + "@example.com"));
+                }
+            }
+        }
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (RegistrationRequest request : burst) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                return locks.withKeys(request, () -> {
+                    AtomicInteger running = inFlight.computeIfAbsent(request.getDni(), dni -> new AtomicInteger());
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    try {
+                        boolean taken = dnis.contains(request.getDni()) || correos.contains(request.getCorreo());
+                        Thread.yield();
+                        if (taken) {
+                            duplicates.incrementAndGet();
+                            return false;
+                        }
+                        if (!dnis.add(request.getDni()) | !correos.add(request.getCorreo())) {
+                            doubleRegistered.incrementAndGet();
+                        }
+                        registered.incrementAndGet();
+                        return true;
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        // Then
+        assertEquals(0, overlaps.get());
+        assertEquals(0, doubleRegistered.get());
+        assertEquals(burst.size(), registered.get() + duplicates.get());
+        assertEquals(dnis.size(), registered.get());
+        assertEquals(correos.size(), registered.get());
+    }
+
+    @Test
+    void withKeys_Batch_HoldsEveryKeyUntilDone() throws Exception {
+        // Given: a batch that only finishes once released
+        CountDownLatch batchRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> batch = executor.submit(() -> locks.withKeys(
+                List.of(request(1, "a@example.com"), request(2, "b@example.com")), () -> {
+                    batchRunning.countDown();
+                    return await(release);
+                }));
+        assertTrue(await(batchRunning));
+
+        // When: a registration with the email of the batch's second one
+        Future<Boolean> single = executor.submit(() -> locks.withKeys(request(3, "b@example.com"), () -> true));
+        Thread.sleep(50);
+
+        // Then
+        assertFalse(single.isDone());
+        release.countDown();
+        assertTrue(batch.get(5, TimeUnit.SECONDS));
+        assertTrue(single.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void withKeys_OverlappingBatchesInOppositeOrder_DoNotDeadlock() throws Exception {
+        // Given
+        List<RegistrationRequest> forward = new ArrayList<>();
+        for (int user = 0; user < 100; user++) {
+            forward.add(request(10_000_000 + user, "user" + user + "@example.com"));
+        }
+        List<RegistrationRequest> backward = new ArrayList<>(forward);
+        Collections.reverse(backward);
+
+        // When
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            List<RegistrationRequest> batch = i % 2 == 0 ? forward : backward;
+            futures.add(executor.submit(() -> locks.withKeys(batch, () -> true)));
+        }
+
+        // Then
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static RegistrationRequest request(int dni, String correo) {
+        return RegistrationRequest.builder().dni(dni).correo(correo).build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.PersistenceResponse;
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessedRegistrationsTest {
+
+    private ProcessedRegistrations processedRegistrations;
+    private RegistrationRequest request;
+    private PersistenceResponse success;
+
+    @BeforeEach
+    void setUp() {
+        processedRegistrations = new ProcessedRegistrations(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processedRegistrations, "enabled", true);
+        ReflectionTestUtils.setField(processedRegistrations, "maxEntries", 100);
+        ReflectionTestUtils.setField(processedRegistrations, "ttlMs", 60_000L);
+        processedRegistrations.init();
+
+        request = RegistrationRequest.builder()
+                .dni(12345678)
+                .nombre("John Doe")
+                .correo("john.doe@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        success = PersistenceResponse.builder()
+                .dni(12345678)
+                .status("SUCCESS")
+                .message("User registered successfully with DNI: 12345678")
+                .build();
+    }
+
+    @Test
+    void replay_SameRequest_ReturnsRecordedResponse() {
+        // Given
+        processedRegistrations.record(null, request, success);
+
+        // When
+        RegistrationRequest redelivered = new RegistrationRequest(request.getNombre(), request.getCorreo(),
+                request.getClave(), request.getDni(), request.getTelefono(), request.getFriendsDni());
+        PersistenceResponse replayed = processedRegistrations.replay(null, redelivered);
+
+        // Then
+        assertSame(success, replayed);
+    }
+
+    @Test
+    void replay_DifferentRequestForSameDni_ReturnsNull() {
+        // Given
+        processedRegistrations.record(null, request, success);
+        RegistrationRequest other = RegistrationRequest.builder()
+                .dni(12345678)
+                .nombre("Someone Else")
+                .correo("someone@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+
+        // When / Then
+        assertNull(processedRegistrations.replay(null, other));
+    }
+
+    @Test
+    void replay_KeyedByMessageIdWhenPresent() {
+        // Given
+        processedRegistrations.record("msg-1", request, success);
+
+        // When / Then
+        assertSame(success, processedRegistrations.replay("msg-1", request));
+        assertNull(processedRegistrations.replay("msg-2", request));
+        assertNull(processedRegistrations.replay(null, request));
+    }
+
+    @Test
+    void record_FailedResponse_IsNotRemembered() {
+        // Given
+        PersistenceResponse failed = PersistenceResponse.builder()
+                .dni(12345678)
+                .status("FAILED")
+                .message("Error persisting user: timeout")
+                .build();
+
+        // When
+        processedRegistrations.record(null, request, failed);
+
+        // Then
+        assertNull(processedRegistrations.replay(null, request));
+    }
+}
@@ -2,17 +2,29 @@ package com.registration.userservice.service;
 
 import com.registration.userservice.dto.PersistenceResponse;
 import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.journal.RegistrationJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.contains;
@@ -27,6 +39,32 @@ class RabbitMQConsumerTest {
     @Mock
     private RabbitMQPublisher rabbitMQPublisher;
 
+    @Mock
+    private ProcessedRegistrations processedRegistrations;
+
+    @Mock
+    private RegistrationJournal journal;
+
+    @Mock
+    private RegistrationRetries retries;
+
+    @Mock
+    private AdmissionController admission;
+
+    @Mock
+    private RegistrationLanes lanes;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RegistrationMetrics metrics = new RegistrationMetrics(meterRegistry);
+
+    @Spy
+    private KeyedRegistrationLocks keyLocks = new KeyedRegistrationLocks(16, meterRegistry);
+
+    @Spy
+    private RegistrationDeadlines deadlines = new RegistrationDeadlines(meterRegistry);
+
     @InjectMocks
     private RabbitMQConsumer rabbitMQConsumer;
 
@@ -36,6 +74,16 @@ class RabbitMQConsumerTest {
 
     @BeforeEach
     void setUp() {
+        // Database not saturated: every delivery is admitted
+        lenient().when(admission.admit()).thenReturn(true);
+        lenient().when(lanes.latency(any())).thenAnswer(invocation ->
+                meterRegistry.timer("registration.lane.latency", "lane", invocation.<RegistrationLanes.Lane>getArgument(0).tag()));
+        // Journal disabled: nothing is journaled
+        lenient().when(journal.appendAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        ReflectionTestUtils.setField(deadlines, "enabled", true);
+        ReflectionTestUtils.setField(deadlines, "graceMs", 500L);
+        deadlines.init();
+
         validRequest = RegistrationRequest.builder()
                 .dni(12345678)
                 .nombre("John Doe")
@@ -66,10 +114,12 @@ class RabbitMQConsumerTest {
         when(userService.persistUser(any(RegistrationRequest.class))).thenReturn(successResponse);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService).persistUser(validRequest);
         verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        assertEquals(1, meterRegistry.get("registration.validation").timer().count());
+        assertEquals(1, meterRegistry.get("registration.consume").tag("mode", "single").timer().count());
     }
 
     @Test
@@ -78,7 +128,7 @@ class RabbitMQConsumerTest {
         when(userService.persistUser(any(RegistrationRequest.class))).thenReturn(failureResponse);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService).persistUser(validRequest);
         verify(rabbitMQPublisher).publishPersistenceResponse(failureResponse);
@@ -91,7 +141,7 @@ class RabbitMQConsumerTest {
         when(userService.persistUser(any(RegistrationRequest.class))).thenReturn(successResponse);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService).persistUser(validRequest);
         verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
@@ -103,11 +153,13 @@ class RabbitMQConsumerTest {
         validRequest.setDni(null);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         // Should not call userService due to validation failure
         verify(userService, never()).persistUser(any());
         verify(rabbitMQPublisher).publishErrorResponse(eq(null), contains("DNI is required"));
+        assertEquals(1, meterRegistry.get("registration.outcomes")
+                .tags("status", "FAILED", "reason", "invalid_request").counter().count());
     }
 
     @Test
@@ -116,7 +168,7 @@ class RabbitMQConsumerTest {
         validRequest.setNombre("");
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService, never()).persistUser(any());
         verify(rabbitMQPublisher).publishErrorResponse(eq(12345678), contains("Name is required"));
@@ -128,7 +180,7 @@ class RabbitMQConsumerTest {
         validRequest.setCorreo(null);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService, never()).persistUser(any());
         verify(rabbitMQPublisher).publishErrorResponse(eq(12345678), contains("Email is required"));
@@ -140,7 +192,7 @@ class RabbitMQConsumerTest {
         validRequest.setClave(null);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService, never()).persistUser(any());
         verify(rabbitMQPublisher).publishErrorResponse(eq(12345678), contains("Password is required"));
@@ -152,7 +204,7 @@ class RabbitMQConsumerTest {
         validRequest.setTelefono(null);
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService, never()).persistUser(any());
         verify(rabbitMQPublisher).publishErrorResponse(eq(12345678), contains("Phone is required"));
@@ -165,7 +217,7 @@ class RabbitMQConsumerTest {
                 .thenThrow(new RuntimeException("Database connection error"));
 
         // Act & Assert
-        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest));
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
         
         verify(userService).persistUser(validRequest);
         verify(rabbitMQPublisher).publishErrorResponse(eq(12345678), contains("Database connection error"));
@@ -177,10 +229,302 @@ class RabbitMQConsumerTest {
         when(userService.persistUser(any(RegistrationRequest.class))).thenReturn(successResponse);
 
         // Act
-        rabbitMQConsumer.consumeRegistrationRequest(validRequest);
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null);
 
         // Assert
         verify(userService).persistUser(validRequest);
         // The actual log messages are verified through manual testing or log inspection
     }
-} 
\ No newline at end of file
+
+    @Test
+    void consumeRegistrationBatch_PublishesOneResponsePerMessage() {
+        // Arrange
+        RegistrationRequest invalidRequest = RegistrationRequest.builder()
+                .dni(22222222)
+                .nombre("No Email")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        when(userService.persistUsers(List.of(validRequest))).thenReturn(List.of(successResponse));
+
+        // Act
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationBatch(messages(validRequest, invalidRequest)));
+
+        // Assert
+        verify(userService).persistUsers(List.of(validRequest));
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        verify(rabbitMQPublisher).publishErrorResponse(eq(22222222), contains("Email is required"));
+    }
+
+    @Test
+    void consumeRegistrationBatch_BatchFails_FallsBackToOneByOne() {
+        // Arrange
+        when(userService.persistUsers(any())).thenThrow(new RuntimeException("Constraint violation"));
+        when(userService.persistUser(validRequest)).thenReturn(successResponse);
+
+        // Act
+        assertDoesNotThrow(() -> rabbitMQConsumer.consumeRegistrationBatch(messages(validRequest)));
+
+        // Assert
+        verify(userService).persistUser(validRequest);
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+    }
+
+    @Test
+    void consumeRegistrationRequest_Success_RecordsProcessedRegistration() {
+        // Arrange
+        when(userService.persistUser(validRequest)).thenReturn(successResponse);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, "msg-1", null, null, null);
+
+        // Assert
+        verify(processedRegistrations).replay("msg-1", validRequest);
+        verify(processedRegistrations).record("msg-1", validRequest, successResponse);
+    }
+
+    @Test
+    void consumeRegistrationRequest_Redelivery_RepublishesProcessedResponse() {
+        // Arrange
+        when(processedRegistrations.replay("msg-1", validRequest)).thenReturn(successResponse);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, "msg-1", null, null, null);
+
+        // Assert
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        assertEquals(1, meterRegistry.get("registration.replays").counter().count());
+    }
+
+    @Test
+    void consumeRegistrationBatch_Redelivery_SkipsProcessedRegistration() {
+        // Arrange
+        RegistrationRequest newRequest = RegistrationRequest.builder()
+                .dni(33333333)
+                .nombre("Jane Doe")
+                .correo("jane.doe@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        PersistenceResponse newResponse = PersistenceResponse.builder()
+                .dni(33333333)
+                .status("SUCCESS")
+                .message("User registered successfully with DNI: 33333333")
+                .build();
+        when(processedRegistrations.replay(null, validRequest)).thenReturn(successResponse);
+        when(userService.persistUsers(List.of(newRequest))).thenReturn(List.of(newResponse));
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationBatch(messages(validRequest, newRequest));
+
+        // Assert
+        verify(userService).persistUsers(List.of(newRequest));
+        verify(processedRegistrations).record(null, newRequest, newResponse);
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        verify(rabbitMQPublisher).publishPersistenceResponse(newResponse);
+    }
+
+    @Test
+    void consumeRegistrationBatch_MessageIds_KeyProcessedRegistrations() {
+        // Arrange
+        when(userService.persistUsers(List.of(validRequest))).thenReturn(List.of(successResponse));
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationBatch(List.of(MessageBuilder.withPayload(validRequest)
+                .setHeader(AmqpHeaders.MESSAGE_ID, "msg-1")
+                .build()));
+
+        // Assert
+        verify(processedRegistrations).replay("msg-1", validRequest);
+        verify(processedRegistrations).record("msg-1", validRequest, successResponse);
+    }
+
+    @Test
+    void consumeRegistrationRequest_Journaled_AcksWithoutPersisting() {
+        // Arrange
+        when(journal.append(validRequest)).thenReturn(true);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null);
+
+        // Assert
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+    }
+
+    @Test
+    void consumeRegistrationRequest_TransientFailure_SchedulesRetryWithoutResponding() {
+        // Arrange
+        TransientPersistenceException transientFailure =
+                new TransientPersistenceException(failureResponse, new RuntimeException("Connection refused"));
+        when(userService.persistUser(validRequest)).thenThrow(transientFailure);
+        when(retries.retry(validRequest, "msg-1", 1, Map.of(), transientFailure)).thenReturn(true);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, "msg-1", 1, null, null);
+
+        // Assert
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+        verify(rabbitMQPublisher, never()).publishErrorResponse(any(), any());
+        assertEquals(0, metrics.outcomeCount(RegistrationMetrics.Outcome.ERROR));
+    }
+
+    @Test
+    void consumeRegistrationRequest_TransientFailureRetriesExhausted_PublishesFailure() {
+        // Arrange
+        TransientPersistenceException transientFailure =
+                new TransientPersistenceException(failureResponse, new RuntimeException("Connection refused"));
+        when(userService.persistUser(validRequest)).thenThrow(transientFailure);
+        when(retries.retry(validRequest, null, 3, Map.of(), transientFailure)).thenReturn(false);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, 3, null, null);
+
+        // Assert
+        verify(rabbitMQPublisher).publishPersistenceResponse(failureResponse);
+        assertEquals(1, metrics.outcomeCount(RegistrationMetrics.Outcome.ERROR));
+    }
+
+    @Test
+    void consumeRegistrationBatch_TransientFailure_RetriesWithAttemptFromHeaders() {
+        // Arrange
+        TransientPersistenceException transientFailure =
+                new TransientPersistenceException(failureResponse, new RuntimeException("Connection refused"));
+        when(userService.persistUsers(any())).thenThrow(new RuntimeException("Connection refused"));
+        when(userService.persistUser(validRequest)).thenThrow(transientFailure);
+        Map<String, Object> carried = Map.of(RegistrationLanes.LANE_HEADER, "bulk");
+        when(retries.retry(validRequest, null, 2, carried, transientFailure)).thenReturn(true);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationBatch(List.of(MessageBuilder.withPayload(validRequest)
+                .setHeader(RegistrationRetries.ATTEMPT_HEADER, 2)
+                .setHeader(RegistrationLanes.LANE_HEADER, "bulk")
+                .build()));
+
+        // Assert
+        verify(retries).retry(validRequest, null, 2, carried, transientFailure);
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+    }
+
+    @Test
+    void consumeRegistrationRequest_DatabaseSaturated_RequeuesWithoutPersisting() {
+        // Arrange
+        when(admission.admit()).thenReturn(false);
+
+        // Act / Assert
+        assertThrows(ImmediateRequeueAmqpException.class,
+                () -> rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null));
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+    }
+
+    @Test
+    void consumeRegistrationRequest_DeadlinePassed_DropsWithoutPersistingOrResponding() {
+        // Arrange: the gateway gave up five seconds ago, while the database is saturated
+        lenient().when(admission.admit()).thenReturn(false);
+        long deadline = System.currentTimeMillis() - 5_000;
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, "msg-1", null, deadline, null);
+
+        // Assert
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+        verify(rabbitMQPublisher, never()).publishErrorResponse(any(), any());
+        assertEquals(1, meterRegistry.get("registration.expired").counter().count());
+    }
+
+    @Test
+    void consumeRegistrationRequest_DeadlineAhead_Persists() {
+        // Arrange
+        when(userService.persistUser(validRequest)).thenReturn(successResponse);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, System.currentTimeMillis() + 30_000, null);
+
+        // Assert
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        assertEquals(0, meterRegistry.get("registration.expired").counter().count());
+    }
+
+    @Test
+    void consumeRegistrationBatch_ExpiredMessage_OnlyPersistsTheOthers() {
+        // Arrange
+        RegistrationRequest expiredRequest = RegistrationRequest.builder()
+                .dni(87654321)
+                .nombre("Jane Doe")
+                .correo("jane.doe@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        when(userService.persistUsers(List.of(validRequest))).thenReturn(List.of(successResponse));
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationBatch(List.of(
+                MessageBuilder.withPayload(validRequest)
+                        .setHeader(RegistrationDeadlines.DEADLINE_HEADER, System.currentTimeMillis() + 30_000)
+                        .build(),
+                MessageBuilder.withPayload(expiredRequest)
+                        .setHeader(RegistrationDeadlines.DEADLINE_HEADER, System.currentTimeMillis() - 5_000)
+                        .build()));
+
+        // Assert
+        verify(userService).persistUsers(List.of(validRequest));
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        assertEquals(1, meterRegistry.get("registration.expired").counter().count());
+    }
+
+    @Test
+    void consumeRegistrationRequest_BulkLaneHint_MovesToBulkLaneWithoutPersisting() {
+        // Arrange
+        Map<String, Object> carried = Map.of(RegistrationLanes.LANE_HEADER, "bulk");
+        when(lanes.divert(validRequest, "msg-1", 1, carried)).thenReturn(true);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, "msg-1", 1, null, "bulk");
+
+        // Assert
+        verify(admission, never()).admit();
+        verify(userService, never()).persistUser(any());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+    }
+
+    @Test
+    void consumeBulkRegistration_TransientFailure_RetryKeepsBulkLane() {
+        // Arrange
+        TransientPersistenceException transientFailure =
+                new TransientPersistenceException(failureResponse, new RuntimeException("Connection refused"));
+        when(userService.persistUser(validRequest)).thenThrow(transientFailure);
+        when(retries.retry(validRequest, null, null, Map.of(RegistrationLanes.LANE_HEADER, "bulk"), transientFailure))
+                .thenReturn(true);
+
+        // Act
+        rabbitMQConsumer.consumeBulkRegistration(validRequest, null, null, null);
+
+        // Assert
+        verify(lanes, never()).divert(any(), any(), any(), any());
+        verify(rabbitMQPublisher, never()).publishPersistenceResponse(any());
+        assertEquals(1, meterRegistry.get("registration.lane.latency").tag("lane", "bulk").timer().count());
+    }
+
+    @Test
+    void consumeRegistrationRequest_Interactive_TimedInInteractiveLane() {
+        // Arrange
+        when(userService.persistUser(validRequest)).thenReturn(successResponse);
+
+        // Act
+        rabbitMQConsumer.consumeRegistrationRequest(validRequest, null, null, null, null);
+
+        // Assert
+        verify(rabbitMQPublisher).publishPersistenceResponse(successResponse);
+        assertEquals(1, meterRegistry.get("registration.lane.latency").tag("lane", "interactive").timer().count());
+    }
+
+    private static List<Message<RegistrationRequest>> messages(RegistrationRequest... requests) {
+        return Arrays.stream(requests)
+                .map(request -> MessageBuilder.withPayload(request).build())
+                .toList();
+    }
+}
@@ -1,13 +1,18 @@
 package com.registration.userservice.service;
 
 import com.registration.userservice.dto.PersistenceResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -21,6 +26,15 @@ class RabbitMQPublisherTest {
     @Mock
     private RabbitTemplate rabbitTemplate;
 
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RegistrationMetrics metrics = new RegistrationMetrics(meterRegistry);
+
     @InjectMocks
     private RabbitMQPublisher rabbitMQPublisher;
 
@@ -55,6 +69,7 @@ class RabbitMQPublisherTest {
         assertEquals(response.getStatus(), capturedResponse.getStatus());
         assertEquals(response.getMessage(), capturedResponse.getMessage());
         assertEquals(response.getTimestamp(), capturedResponse.getTimestamp());
+        assertEquals(1, meterRegistry.get("registration.publish").timer().count());
     }
 
     @Test
@@ -136,4 +151,81 @@ class RabbitMQPublisherTest {
         assertNull(capturedResponse.getMessage());
         assertNotNull(capturedResponse.getTimestamp());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void publishWithConfirms_AckReleasesWindowAndRecordsLatency() {
+        // Given
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> confirmCallback = enableConfirms(3);
+        PersistenceResponse response = PersistenceResponse.builder().dni(12345678).status("SUCCESS").build();
+
+        // When
+        rabbitMQPublisher.publishPersistenceResponse(response);
+
+        // Then
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate).convertAndSend(eq(exchangeName), eq(persistedRoutingKey), eq(response), correlation.capture());
+        assertEquals(1, rabbitMQPublisher.getInFlightConfirms());
+
+        confirmCallback.getValue().confirm(correlation.getValue(), true, null);
+
+        assertEquals(0, rabbitMQPublisher.getInFlightConfirms());
+        assertEquals(1, meterRegistry.get("rabbitmq.publisher.confirm.latency").timer().count());
+        assertEquals(1.0, meterRegistry.get("rabbitmq.publisher.confirms").tag("result", "ack").counter().count());
+    }
+
+    @Test
+    void publishWithConfirms_NackIsRepublishedThenDroppedAfterMaxAttempts() {
+        // Given
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> confirmCallback = enableConfirms(2);
+        PersistenceResponse response = PersistenceResponse.builder().dni(87654321).status("FAILED").build();
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+
+        // When - first attempt is nacked
+        rabbitMQPublisher.publishPersistenceResponse(response);
+        verify(rabbitTemplate).convertAndSend(eq(exchangeName), eq(persistedRoutingKey), eq(response), correlation.capture());
+        confirmCallback.getValue().confirm(correlation.getValue(), false, "queue full");
+
+        // Then - republished asynchronously with a fresh correlation
+        verify(rabbitTemplate, timeout(2000).times(2))
+                .convertAndSend(eq(exchangeName), eq(persistedRoutingKey), eq(response), correlation.capture());
+        CorrelationData secondAttempt = correlation.getValue();
+        confirmCallback.getValue().confirm(secondAttempt, false, "queue full");
+
+        assertEquals(0, rabbitMQPublisher.getInFlightConfirms());
+        assertEquals(2.0, meterRegistry.get("rabbitmq.publisher.confirms").tag("result", "nack").counter().count());
+        assertEquals(1.0, meterRegistry.get("rabbitmq.publisher.dropped").counter().count());
+    }
+
+    @Test
+    void publishWithConfirms_NotConfiguredOnConnectionFactory_FallsBackToPlainPublish() {
+        // Given
+        ReflectionTestUtils.setField(rabbitMQPublisher, "confirmsEnabled", true);
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+        rabbitMQPublisher.initConfirms();
+        PersistenceResponse response = PersistenceResponse.builder().dni(12345678).status("SUCCESS").build();
+
+        // When
+        rabbitMQPublisher.publishPersistenceResponse(response);
+
+        // Then
+        verify(rabbitTemplate).convertAndSend(exchangeName, persistedRoutingKey, response);
+        verify(rabbitTemplate, never()).setConfirmCallback(any());
+    }
+
+    private ArgumentCaptor<RabbitTemplate.ConfirmCallback> enableConfirms(int maxAttempts) {
+        ReflectionTestUtils.setField(rabbitMQPublisher, "confirmsEnabled", true);
+        ReflectionTestUtils.setField(rabbitMQPublisher, "maxInFlight", 8);
+        ReflectionTestUtils.setField(rabbitMQPublisher, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(rabbitMQPublisher, "retryDelayMs", 10L);
+        ReflectionTestUtils.setField(rabbitMQPublisher, "windowTimeoutMs", 100L);
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        rabbitMQPublisher.initConfirms();
+
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> confirmCallback =
+                ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        verify(rabbitTemplate).setConfirmCallback(confirmCallback.capture());
+        return confirmCallback;
+    }
+}
@@ -0,0 +1,51 @@
+package com.registration.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistrationDeadlinesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RegistrationDeadlines deadlines;
+
+    @BeforeEach
+    void setUp() {
+        deadlines = new RegistrationDeadlines(meterRegistry);
+        ReflectionTestUtils.setField(deadlines, "enabled", true);
+        ReflectionTestUtils.setField(deadlines, "graceMs", 500L);
+        deadlines.init();
+    }
+
+    @Test
+    void expired_PastDeadline_IsCounted() {
+        assertTrue(deadlines.expired(System.currentTimeMillis() - 2_000, 12345678));
+        assertEquals(1, meterRegistry.get("registration.expired").counter().count());
+    }
+
+    @Test
+    void expired_WithinGrace_IsNotExpired() {
+        // A gateway clock slightly ahead of this one
+        assertFalse(deadlines.expired(System.currentTimeMillis() - 100, 12345678));
+    }
+
+    @Test
+    void expired_IntegerOrMissingHeader_IsHandled() {
+        assertTrue(deadlines.expired(1, 12345678));
+        assertFalse(deadlines.expired(null, 12345678));
+        assertFalse(deadlines.expired("soon", 12345678));
+    }
+
+    @Test
+    void expired_Disabled_NeverExpires() {
+        ReflectionTestUtils.setField(deadlines, "enabled", false);
+
+        assertFalse(deadlines.expired(System.currentTimeMillis() - 60_000, 12345678));
+        assertEquals(0, meterRegistry.get("registration.expired").counter().count());
+    }
+}
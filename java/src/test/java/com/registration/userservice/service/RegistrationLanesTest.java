@@ -0,0 +1,134 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import com.registration.userservice.service.RegistrationLanes.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationLanesTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private AmqpAdmin amqpAdmin;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RegistrationLanes lanes;
+    private RegistrationRequest request;
+
+    @BeforeEach
+    void setUp() {
+        lanes = new RegistrationLanes(rabbitTemplate, amqpAdmin, meterRegistry);
+        ReflectionTestUtils.setField(lanes, "enabled", true);
+        ReflectionTestUtils.setField(lanes, "exchangeName", "registro_bus");
+        ReflectionTestUtils.setField(lanes, "persistQueue", "queue_lp1");
+        ReflectionTestUtils.setField(lanes, "bulkQueue", "queue_lp1.bulk");
+        ReflectionTestUtils.setField(lanes, "bulkRoutingKey", "lp1.persist.bulk");
+        lanes.init();
+
+        request = RegistrationRequest.builder().dni(12345678).correo("john.doe@example.com").build();
+    }
+
+    @Test
+    void laneOf_OnlyBulkHeaderIsBulk() {
+        assertEquals(Lane.BULK, Lane.of("bulk"));
+        assertEquals(Lane.BULK, Lane.of("BULK"));
+        assertEquals(Lane.INTERACTIVE, Lane.of("interactive"));
+        assertEquals(Lane.INTERACTIVE, Lane.of(null));
+    }
+
+    @Test
+    void divert_BulkRegistration_RepublishesToBulkLaneKeepingHeaders() {
+        // When
+        boolean diverted = lanes.divert(request, "msg-1", 2, Map.of(
+                RegistrationLanes.LANE_HEADER, "bulk", RegistrationDeadlines.DEADLINE_HEADER, 1_700_000_030_000L));
+
+        // Then
+        assertTrue(diverted);
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq("registro_bus"), eq("lp1.persist.bulk"), eq(request),
+                postProcessor.capture());
+        MessageProperties properties = postProcessor.getValue()
+                .postProcessMessage(new Message(new byte[0], new MessageProperties())).getMessageProperties();
+        assertEquals("bulk", properties.getHeaders().get(RegistrationLanes.LANE_HEADER));
+        assertEquals(1_700_000_030_000L, properties.getHeaders().get(RegistrationDeadlines.DEADLINE_HEADER));
+        assertEquals(2, properties.getHeaders().get(RegistrationRetries.ATTEMPT_HEADER));
+        assertEquals("msg-1", properties.getMessageId());
+        assertEquals(1, meterRegistry.get("registration.lane.diverted").counter().count());
+    }
+
+    @Test
+    void divert_InteractiveOrUntagged_StaysInQueue() {
+        assertFalse(lanes.divert(request, null, null, Map.of(RegistrationLanes.LANE_HEADER, "interactive")));
+        assertFalse(lanes.divert(request, null, null, Map.of()));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void divert_Disabled_StaysInQueue() {
+        // Given
+        ReflectionTestUtils.setField(lanes, "enabled", false);
+
+        // When / Then
+        assertFalse(lanes.divert(request, null, null, Map.of(RegistrationLanes.LANE_HEADER, "bulk")));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void divert_Partitioned_StaysOnShard() {
+        // Given
+        ReflectionTestUtils.setField(lanes, "partitioned", true);
+
+        // When / Then
+        assertFalse(lanes.divert(request, null, null, Map.of(RegistrationLanes.LANE_HEADER, "bulk")));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void divert_BrokerUnavailable_ProcessesInPlace() {
+        // Given
+        doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class));
+
+        // When / Then
+        assertFalse(lanes.divert(request, null, null, Map.of(RegistrationLanes.LANE_HEADER, "bulk")));
+        assertEquals(0, meterRegistry.get("registration.lane.diverted").counter().count());
+    }
+
+    @Test
+    void queueDepthGauge_ReportsEachLane() {
+        // Given
+        when(amqpAdmin.getQueueInfo("queue_lp1")).thenReturn(new QueueInformation("queue_lp1", 3, 5));
+        when(amqpAdmin.getQueueInfo("queue_lp1.bulk")).thenReturn(new QueueInformation("queue_lp1.bulk", 900, 2));
+
+        // When / Then
+        assertEquals(3, meterRegistry.get("registration.lane.queue.depth").tag("lane", "interactive").gauge().value());
+        assertEquals(900, meterRegistry.get("registration.lane.queue.depth").tag("lane", "bulk").gauge().value());
+    }
+}
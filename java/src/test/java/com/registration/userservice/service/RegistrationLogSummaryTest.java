@@ -0,0 +1,42 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.service.RegistrationMetrics.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationLogSummaryTest {
+
+    private RegistrationMetrics metrics;
+    private RegistrationLogSummary summary;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new RegistrationMetrics(new SimpleMeterRegistry());
+        summary = new RegistrationLogSummary(metrics);
+    }
+
+    @Test
+    void summarize_ReportsOutcomesSincePreviousCall() {
+        // Given
+        metrics.recordOutcome(Outcome.REGISTERED);
+        metrics.recordOutcome(Outcome.REGISTERED);
+        metrics.recordOutcome(Outcome.DUPLICATE_DNI);
+
+        // When
+        String first = summary.summarize();
+        metrics.recordOutcome(Outcome.INVALID_REQUEST);
+        String second = summary.summarize();
+
+        // Then
+        assertEquals("Processed 3 registrations (registered=2, duplicate_dni=1)", first);
+        assertEquals("Processed 1 registrations (invalid_request=1)", second);
+    }
+
+    @Test
+    void summarize_NothingProcessed_ReturnsNull() {
+        assertNull(summary.summarize());
+    }
+}
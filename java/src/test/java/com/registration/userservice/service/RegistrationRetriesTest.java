@@ -0,0 +1,136 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.RegistrationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationRetriesTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private AmqpAdmin amqpAdmin;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Exception cause = new RuntimeException("Connection refused");
+    private RegistrationRetries retries;
+    private RegistrationRequest request;
+
+    @BeforeEach
+    void setUp() {
+        retries = new RegistrationRetries(rabbitTemplate, amqpAdmin, meterRegistry);
+        ReflectionTestUtils.setField(retries, "enabled", true);
+        ReflectionTestUtils.setField(retries, "persistQueue", "queue_lp1");
+        ReflectionTestUtils.setField(retries, "retryExchange", "registro_bus.retry");
+        ReflectionTestUtils.setField(retries, "delaysMs", new long[] {1000, 5000});
+        ReflectionTestUtils.setField(retries, "deadLetterExchange", "registro_bus.dlx");
+        ReflectionTestUtils.setField(retries, "parkingLotRoutingKey", "lp1.parked");
+        ReflectionTestUtils.setField(retries, "parkingLotQueue", "queue_lp1.parking-lot");
+        retries.init();
+
+        request = RegistrationRequest.builder().dni(12345678).correo("john.doe@example.com").build();
+    }
+
+    @Test
+    void retry_FirstFailure_PublishesToFirstTierWithAttemptHeader() {
+        // When
+        boolean scheduled = retries.retry(request, "msg-1", null, Map.of(
+                RegistrationDeadlines.DEADLINE_HEADER, 1_700_000_030_000L, RegistrationLanes.LANE_HEADER, "bulk"), cause);
+
+        // Then
+        assertTrue(scheduled);
+        MessageProperties properties = publishedProperties("registro_bus.retry", "queue_lp1.retry.1000ms");
+        assertEquals(1, properties.getHeaders().get(RegistrationRetries.ATTEMPT_HEADER));
+        assertEquals(1_700_000_030_000L, properties.getHeaders().get(RegistrationDeadlines.DEADLINE_HEADER));
+        assertEquals("bulk", properties.getHeaders().get(RegistrationLanes.LANE_HEADER));
+        assertEquals("msg-1", properties.getMessageId());
+        assertEquals(1, meterRegistry.get("registration.retries").tag("tier", "1000ms").counter().count());
+    }
+
+    @Test
+    void retry_SecondFailure_PublishesToNextTier() {
+        // When
+        boolean scheduled = retries.retry(request, null, 1, null, cause);
+
+        // Then
+        assertTrue(scheduled);
+        MessageProperties properties = publishedProperties("registro_bus.retry", "queue_lp1.retry.5000ms");
+        assertEquals(2, properties.getHeaders().get(RegistrationRetries.ATTEMPT_HEADER));
+    }
+
+    @Test
+    void retry_TiersExhausted_ParksRegistration() {
+        // When
+        boolean scheduled = retries.retry(request, null, 2, null, cause);
+
+        // Then
+        assertFalse(scheduled);
+        MessageProperties properties = publishedProperties("registro_bus.dlx", "lp1.parked");
+        assertEquals("Connection refused", properties.getHeaders().get(RegistrationRetries.PARKED_REASON_HEADER));
+        assertEquals(1, meterRegistry.get("registration.parked").counter().count());
+    }
+
+    @Test
+    void retry_BrokerUnavailable_LeavesResponseToCaller() {
+        // Given
+        doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class));
+
+        // When / Then
+        assertFalse(retries.retry(request, null, null, null, cause));
+    }
+
+    @Test
+    void retry_Disabled_NeverPublishes() {
+        // Given
+        ReflectionTestUtils.setField(retries, "enabled", false);
+
+        // When / Then
+        assertFalse(retries.retry(request, null, null, null, cause));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void queueDepthGauge_ReadsMessageCountFromBroker() {
+        // Given
+        when(amqpAdmin.getQueueInfo("queue_lp1.parking-lot"))
+                .thenReturn(new QueueInformation("queue_lp1.parking-lot", 7, 0));
+
+        // When / Then
+        assertEquals(7, meterRegistry.get("registration.retry.queue.depth")
+                .tag("queue", "queue_lp1.parking-lot").gauge().value());
+    }
+
+    private MessageProperties publishedProperties(String exchange, String routingKey) {
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq(exchange), eq(routingKey), eq(request), postProcessor.capture());
+        Message message = postProcessor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        return message.getMessageProperties();
+    }
+}
@@ -0,0 +1,127 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExistenceFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+    private UserExistenceFilter existenceFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        existenceFilter = new UserExistenceFilter(userRepository, meterRegistry);
+        ReflectionTestUtils.setField(existenceFilter, "enabled", true);
+        ReflectionTestUtils.setField(existenceFilter, "expectedInsertions", 10_000L);
+        ReflectionTestUtils.setField(existenceFilter, "falsePositiveRate", 0.01);
+        existenceFilter.init();
+
+        when(userRepository.streamAllDnis()).thenReturn(IntStream.range(0, 5_000).map(i -> 10_000_000 + i).boxed());
+        when(userRepository.streamAllCorreos()).thenReturn(Stream.of("existing@example.com"));
+        existenceFilter.load();
+    }
+
+    @Test
+    void isDniTaken_LoadedDni_FallsThroughToDatabase() {
+        // Arrange
+        when(userRepository.existsByDni(10_000_042)).thenReturn(true);
+
+        // Act & Assert
+        assertTrue(existenceFilter.isDniTaken(10_000_042));
+        verify(userRepository).existsByDni(10_000_042);
+    }
+
+    @Test
+    void isCorreoTaken_LoadedCorreo_FallsThroughToDatabase() {
+        // Arrange
+        when(userRepository.existsByCorreo("existing@example.com")).thenReturn(true);
+
+        // Act & Assert
+        assertTrue(existenceFilter.isCorreoTaken("existing@example.com"));
+    }
+
+    @Test
+    void isDniTaken_NewDnis_MostlyAnsweredWithoutDatabase() {
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(existenceFilter.isDniTaken(20_000_000 + i));
+        }
+
+        // Assert - with 5000 of 10000 entries loaded the false positive rate stays well under 1%
+        double falsePositives = meterRegistry.counter("users.existence.filter.false.positives", "key", "dni").count();
+        double negatives = meterRegistry.counter("users.existence.filter.checks", "key", "dni", "result", "negative").count();
+        assertTrue(falsePositives < 100, "false positives: " + falsePositives);
+        assertEquals(10_000, negatives + falsePositives);
+        verify(userRepository, atMost(100)).existsByDni(anyInt());
+    }
+
+    @Test
+    void recordUser_MakesDniAndCorreoPossibleHits() {
+        // Arrange
+        when(userRepository.existsByDni(30_000_000)).thenReturn(true);
+        when(userRepository.existsByCorreo("new@example.com")).thenReturn(true);
+
+        // Act
+        existenceFilter.recordUser(30_000_000, "new@example.com");
+
+        // Assert
+        assertTrue(existenceFilter.isDniTaken(30_000_000));
+        assertTrue(existenceFilter.isCorreoTaken("new@example.com"));
+    }
+
+    @Test
+    void takenDnis_OnlyPossibleHitsAreQueried() {
+        // Arrange
+        when(userRepository.findExistingDnis(List.of(10_000_001))).thenReturn(List.of(10_000_001));
+
+        // Act
+        Set<Integer> taken = existenceFilter.takenDnis(List.of(10_000_001, 40_000_000));
+
+        // Assert
+        assertEquals(Set.of(10_000_001), taken);
+        verify(userRepository).findExistingDnis(List.of(10_000_001));
+    }
+
+    @Test
+    void metrics_ExposeFalsePositiveRateAndMemory() {
+        // Assert
+        double expectedFpp = meterRegistry.get("users.existence.filter.expected.fpp").tag("key", "dni").gauge().value();
+        double memory = meterRegistry.get("users.existence.filter.memory").tag("key", "dni").gauge().value();
+        assertTrue(expectedFpp > 0 && expectedFpp < 0.01);
+        assertTrue(memory > 0);
+        assertEquals(5_000, meterRegistry.get("users.existence.filter.entries").tag("key", "dni").gauge().value());
+    }
+
+    @Test
+    void disabledFilter_EveryCheckGoesToDatabase() {
+        // Arrange
+        ReflectionTestUtils.setField(existenceFilter, "enabled", false);
+
+        // Act
+        existenceFilter.isDniTaken(40_000_000);
+
+        // Assert
+        verify(userRepository).existsByDni(40_000_000);
+    }
+}
@@ -0,0 +1,165 @@
+package com.registration.userservice.service;
+
+import com.registration.userservice.dto.FriendsPage;
+import com.registration.userservice.dto.UserResponse;
+import com.registration.userservice.entity.User;
+import com.registration.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserQueryServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private UserQueryService userQueryService;
+
+    private User user;
+    private User friend;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userQueryService, "maxEntries", 100);
+        ReflectionTestUtils.setField(userQueryService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(userQueryService, "maxPageSize", 500);
+        userQueryService.init();
+
+        user = User.builder()
+                .id(1)
+                .dni(12345678)
+                .nombre("John Doe")
+                .correo("john.doe@example.com")
+                .clave(1234)
+                .telefono(987654321)
+                .build();
+        friend = User.builder()
+                .id(2)
+                .dni(87654321)
+                .nombre("Friend One")
+                .correo("friend1@example.com")
+                .clave(5678)
+                .telefono(912345678)
+                .build();
+    }
+
+    @Test
+    void findByDni_SecondLookupServedFromCache() {
+        // Given
+        when(userRepository.findByDni(12345678)).thenReturn(Optional.of(user));
+
+        // When
+        Optional<UserResponse> first = userQueryService.findByDni(12345678);
+        Optional<UserResponse> second = userQueryService.findByDni(12345678);
+
+        // Then
+        assertEquals(first, second);
+        assertEquals("john.doe@example.com", first.orElseThrow().getCorreo());
+        verify(userRepository, times(1)).findByDni(12345678);
+        assertEquals(1, meterRegistry.get("users.query.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void findByDni_CachedMissIsDroppedOnEvict() {
+        // Given
+        when(userRepository.findByDni(12345678))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(user));
+        assertTrue(userQueryService.findByDni(12345678).isEmpty());
+        assertTrue(userQueryService.findByDni(12345678).isEmpty());
+
+        // When
+        userQueryService.evict(12345678, "john.doe@example.com");
+
+        // Then
+        assertTrue(userQueryService.findByDni(12345678).isPresent());
+        verify(userRepository, times(2)).findByDni(12345678);
+    }
+
+    @Test
+    void findByCorreo_ReturnsUser() {
+        // Given
+        when(userRepository.findByCorreo("john.doe@example.com")).thenReturn(Optional.of(user));
+
+        // When
+        Optional<UserResponse> found = userQueryService.findByCorreo("john.doe@example.com");
+
+        // Then
+        assertEquals(12345678, found.orElseThrow().getDni());
+    }
+
+    @Test
+    void findFriendDnis_ReturnsCachedDnisOfExistingUser() {
+        // Given
+        when(userRepository.findByDni(12345678)).thenReturn(Optional.of(user));
+        when(userRepository.findFriendDnis(12345678)).thenReturn(List.of(87654321));
+
+        // When
+        Optional<List<Integer>> friendDnis = userQueryService.findFriendDnis(12345678);
+        userQueryService.findFriendDnis(12345678);
+
+        // Then
+        assertEquals(List.of(87654321), friendDnis.orElseThrow());
+        verify(userRepository, times(1)).findFriendDnis(12345678);
+    }
+
+    @Test
+    void findFriends_FullPage_ReturnsCursorForNextPage() {
+        // Given
+        when(userRepository.findByDni(12345678)).thenReturn(Optional.of(user));
+        when(userRepository.findFriendsPage(12345678, Integer.MIN_VALUE, Limit.of(1)))
+                .thenReturn(List.of(UserResponse.from(friend)));
+
+        // When
+        FriendsPage page = userQueryService.findFriends(12345678, null, 1).orElseThrow();
+
+        // Then
+        assertEquals(List.of(87654321), page.getFriends().stream().map(UserResponse::getDni).toList());
+        assertEquals(87654321, page.getNextAfter());
+    }
+
+    @Test
+    void findFriends_LastPage_HasNoCursorAndLimitIsCapped() {
+        // Given
+        when(userRepository.findByDni(12345678)).thenReturn(Optional.of(user));
+        when(userRepository.findFriendsPage(12345678, 87654321, Limit.of(500))).thenReturn(List.of());
+
+        // When
+        FriendsPage page = userQueryService.findFriends(12345678, 87654321, 10_000).orElseThrow();
+
+        // Then
+        assertTrue(page.getFriends().isEmpty());
+        assertNull(page.getNextAfter());
+    }
+
+    @Test
+    void findFriends_UnknownUser_ReturnsEmpty() {
+        // Given
+        when(userRepository.findByDni(99999999)).thenReturn(Optional.empty());
+
+        // When / Then
+        assertTrue(userQueryService.findFriends(99999999, null, 100).isEmpty());
+        assertTrue(userQueryService.findFriendDnis(99999999).isEmpty());
+        verify(userRepository, never()).findFriendsPage(any(), any(), any());
+        verify(userRepository, never()).findFriendDnis(any());
+    }
+}
@@ -3,20 +3,37 @@ package com.registration.userservice.service;
 import com.registration.userservice.dto.PersistenceResponse;
 import com.registration.userservice.dto.RegistrationRequest;
 import com.registration.userservice.entity.User;
+import com.registration.userservice.graph.FriendGraph;
 import com.registration.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +42,23 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private UserExistenceFilter existenceFilter;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RegistrationMetrics metrics = new RegistrationMetrics(meterRegistry);
+
+    @Mock
+    private UserQueryService userQueryService;
+
+    @Mock
+    private FriendGraph friendGraph;
+
     @InjectMocks
     private UserService userService;
 
@@ -35,6 +69,10 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Run the transactional callback inline
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         validRequest = RegistrationRequest.builder()
                 .dni(12345678)
                 .nombre("John Doe")
@@ -72,9 +110,7 @@ class UserServiceTest {
     void persistUser_Success_WithoutFriends() {
         // Arrange
         validRequest.setFriendsDni(null);
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -85,19 +121,19 @@ class UserServiceTest {
         assertTrue(response.getMessage().contains("successfully"));
         assertNotNull(response.getTimestamp());
         
-        verify(userRepository).existsByDni(validRequest.getDni());
-        verify(userRepository).existsByCorreo(validRequest.getCorreo());
-        verify(userRepository, times(1)).save(any(User.class));
+        // Optimistic insert: no existence pre-checks, a single write
+        verify(userRepository, never()).existsByDni(any());
+        verify(userRepository, never()).existsByCorreo(any());
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verifyNoMoreInteractions(userRepository);
     }
 
     @Test
     void persistUser_Success_WithFriends() {
         // Arrange
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
-        when(userRepository.findByDni(87654321)).thenReturn(Optional.of(existingFriend1));
-        when(userRepository.findByDni(11111111)).thenReturn(Optional.of(existingFriend2));
+        when(userRepository.findByDniIn(Arrays.asList(87654321, 11111111)))
+                .thenReturn(Arrays.asList(existingFriend1, existingFriend2));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -106,19 +142,21 @@ class UserServiceTest {
         assertEquals("SUCCESS", response.getStatus());
         assertEquals(validRequest.getDni(), response.getDni());
         
-        verify(userRepository).findByDni(87654321);
-        verify(userRepository).findByDni(11111111);
-        verify(userRepository, times(2)).save(any(User.class)); // Once for user, once for friends
+        verify(userRepository, times(1)).findByDniIn(anyList());
+        verify(userRepository, never()).findByDni(any());
+        // User and friend rows are written by one saveAndFlush instead of save + save
+        verify(userRepository, times(1)).saveAndFlush(argThat(user -> user.getFriends().size() == 2));
+        verify(userRepository, never()).save(any(User.class));
+        verify(friendGraph).recordUser(eq(validRequest.getDni()),
+                argThat(dnis -> Arrays.stream(dnis).sorted().boxed().toList().equals(List.of(11111111, 87654321))));
     }
 
     @Test
     void persistUser_Success_WithSomeFriendsNotFound() {
         // Arrange
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
-        when(userRepository.findByDni(87654321)).thenReturn(Optional.of(existingFriend1));
-        when(userRepository.findByDni(11111111)).thenReturn(Optional.empty()); // Friend not found
+        when(userRepository.findByDniIn(Arrays.asList(87654321, 11111111)))
+                .thenReturn(Collections.singletonList(existingFriend1)); // 11111111 not found
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -127,14 +165,20 @@ class UserServiceTest {
         assertEquals("SUCCESS", response.getStatus());
         assertEquals(validRequest.getDni(), response.getDni());
         
-        verify(userRepository).findByDni(87654321);
-        verify(userRepository).findByDni(11111111);
+        verify(userRepository, times(1)).findByDniIn(anyList());
+        verify(userRepository, never()).findByDni(any());
+        verify(userRepository).saveAndFlush(argThat(user -> user.getFriends().size() == 1));
+        assertEquals(1, meterRegistry.get("registration.friends").tag("result", "found").counter().count());
+        assertEquals(1, meterRegistry.get("registration.friends").tag("result", "missing").counter().count());
+        assertEquals(1, meterRegistry.get("registration.friends.resolution").timer().count());
     }
 
     @Test
     void persistUser_Failed_UserExistsByDni() {
         // Arrange
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(true);
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(uniqueViolation(User.DNI_UNIQUE_CONSTRAINT));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -142,17 +186,20 @@ class UserServiceTest {
         // Assert
         assertEquals("FAILED", response.getStatus());
         assertEquals(validRequest.getDni(), response.getDni());
-        assertTrue(response.getMessage().contains("already exists"));
+        assertEquals("User with DNI 12345678 already exists", response.getMessage());
         
-        verify(userRepository).existsByDni(validRequest.getDni());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).existsByDni(any());
+        assertEquals(1, meterRegistry.get("registration.outcomes")
+                .tags("status", "FAILED", "reason", "duplicate_dni").counter().count());
+        assertEquals(1, meterRegistry.get("registration.persist").tag("mode", "single").timer().count());
     }
 
     @Test
     void persistUser_Failed_UserExistsByEmail() {
         // Arrange
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(true);
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(uniqueViolation(User.CORREO_UNIQUE_CONSTRAINT));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -163,16 +210,63 @@ class UserServiceTest {
         assertTrue(response.getMessage().contains("email"));
         assertTrue(response.getMessage().contains("already exists"));
         
-        verify(userRepository).existsByCorreo(validRequest.getCorreo());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).existsByCorreo(any());
+    }
+
+    @Test
+    void persistUser_Failed_FilterPossibleHitConfirmedByDatabase() {
+        // Arrange
+        when(existenceFilter.isDniTaken(validRequest.getDni())).thenReturn(true);
+
+        // Act
+        PersistenceResponse response = userService.persistUser(validRequest);
+
+        // Assert
+        assertEquals("FAILED", response.getStatus());
+        assertEquals("User with DNI 12345678 already exists", response.getMessage());
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(existenceFilter, never()).recordUser(any(), any());
+    }
+
+    @Test
+    void persistUser_Success_RecordsUserInExistenceFilter() {
+        // Arrange
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
+
+        // Act
+        PersistenceResponse response = userService.persistUser(validRequest);
+
+        // Assert
+        assertEquals("SUCCESS", response.getStatus());
+        verify(existenceFilter).isDniTaken(12345678);
+        verify(existenceFilter).isCorreoTaken("john.doe@example.com");
+        verify(existenceFilter).recordUser(12345678, "john.doe@example.com");
+        verify(userQueryService).evict(12345678, "john.doe@example.com");
+        assertEquals(1, meterRegistry.get("registration.outcomes")
+                .tags("status", "SUCCESS", "reason", "registered").counter().count());
+    }
+
+    @Test
+    void persistUser_Failed_UnknownConstraintViolation() {
+        // Arrange
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(uniqueViolation("fk_something_else"));
+
+        // Act
+        PersistenceResponse response = userService.persistUser(validRequest);
+
+        // Assert
+        assertEquals("FAILED", response.getStatus());
+        assertTrue(response.getMessage().contains("Error persisting user"));
     }
 
     @Test
     void persistUser_Failed_ExceptionDuringSave() {
         // Arrange
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenThrow(new RuntimeException("Database error"));
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new RuntimeException("Database error"));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
@@ -183,6 +277,23 @@ class UserServiceTest {
         assertTrue(response.getMessage().contains("Error persisting user"));
     }
 
+    @Test
+    void persistUser_TransientDatabaseError_ThrowsWithFailedResponse() {
+        // Arrange
+        validRequest.setFriendsDni(null);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(new CannotCreateTransactionException("Connection is not available"));
+
+        // Act
+        TransientPersistenceException thrown = assertThrows(TransientPersistenceException.class,
+                () -> userService.persistUser(validRequest));
+
+        // Assert
+        assertEquals("FAILED", thrown.getResponse().getStatus());
+        assertEquals(validRequest.getDni(), thrown.getResponse().getDni());
+        assertEquals(0, metrics.outcomeCount(RegistrationMetrics.Outcome.ERROR));
+    }
+
     @Test
     void findByDni_UserExists() {
         // Arrange
@@ -240,15 +351,137 @@ class UserServiceTest {
     void persistUser_EmptyFriendsList() {
         // Arrange
         validRequest.setFriendsDni(Collections.emptyList());
-        when(userRepository.existsByDni(validRequest.getDni())).thenReturn(false);
-        when(userRepository.existsByCorreo(validRequest.getCorreo())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
+
+        // Act
+        PersistenceResponse response = userService.persistUser(validRequest);
+
+        // Assert
+        assertEquals("SUCCESS", response.getStatus());
+        verify(userRepository, times(1)).saveAndFlush(any(User.class)); // Only save user, no friends to add
+        verify(userRepository, never()).findByDniIn(anyList());
+    }
+
+    @Test
+    void persistUsers_Batch_OneResponsePerRequestInOrder() {
+        // Arrange
+        RegistrationRequest duplicateDni = RegistrationRequest.builder()
+                .dni(87654321)
+                .nombre("Friend One Again")
+                .correo("other@example.com")
+                .clave(1111)
+                .telefono(911111111)
+                .build();
+        RegistrationRequest second = RegistrationRequest.builder()
+                .dni(22222222)
+                .nombre("Second User")
+                .correo("second@example.com")
+                .clave(2222)
+                .telefono(922222222)
+                .friendsDni(List.of(12345678))
+                .build();
+        when(existenceFilter.takenDnis(anyList())).thenReturn(new HashSet<>(List.of(87654321)));
+        when(existenceFilter.takenCorreos(anyList())).thenReturn(new HashSet<>());
+        when(userRepository.findByDniIn(anyList())).thenReturn(List.of(existingFriend1, existingFriend2));
+
+        // Act
+        List<PersistenceResponse> responses = userService.persistUsers(List.of(validRequest, duplicateDni, second));
+
+        // Assert
+        assertEquals(3, responses.size());
+        assertEquals("SUCCESS", responses.get(0).getStatus());
+        assertEquals("FAILED", responses.get(1).getStatus());
+        assertTrue(responses.get(1).getMessage().contains("already exists"));
+        assertEquals("SUCCESS", responses.get(2).getStatus());
+        assertEquals(22222222, responses.get(2).getDni());
+
+        verify(userRepository, times(1)).findByDniIn(anyList());
+        verify(userRepository, times(1)).saveAllAndFlush(argThat((List<User> users) ->
+                users.size() == 2
+                        && users.get(0).getFriends().size() == 2
+                        && users.get(1).getFriends().size() == 1));
+        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).findByDni(any());
+    }
+
+    @Test
+    void persistUsers_Batch_DuplicateEmailWithinBatchFails() {
+        // Arrange
+        validRequest.setFriendsDni(null);
+        RegistrationRequest sameEmail = RegistrationRequest.builder()
+                .dni(22222222)
+                .nombre("Same Email")
+                .correo(validRequest.getCorreo())
+                .clave(2222)
+                .telefono(922222222)
+                .build();
+        when(existenceFilter.takenDnis(anyList())).thenReturn(new HashSet<>());
+        when(existenceFilter.takenCorreos(anyList())).thenReturn(new HashSet<>());
+
+        // Act
+        List<PersistenceResponse> responses = userService.persistUsers(List.of(validRequest, sameEmail));
+
+        // Assert
+        assertEquals("SUCCESS", responses.get(0).getStatus());
+        assertEquals("FAILED", responses.get(1).getStatus());
+        assertTrue(responses.get(1).getMessage().contains("email"));
+        verify(userRepository, never()).findByDniIn(anyList());
+        verify(userRepository).saveAllAndFlush(argThat((List<User> users) -> users.size() == 1));
+    }
+
+    @Test
+    void persistUsers_Batch_SideEffectsWaitForCommit() {
+        // Arrange
+        validRequest.setFriendsDni(null);
+        when(existenceFilter.takenDnis(anyList())).thenReturn(new HashSet<>());
+        when(existenceFilter.takenCorreos(anyList())).thenReturn(new HashSet<>());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            userService.persistUsers(List.of(validRequest));
+
+            // Assert: nothing is recorded while the commit can still fail
+            verify(userRepository).saveAllAndFlush(anyList());
+            verify(existenceFilter, never()).recordUser(any(), any());
+            verify(userQueryService, never()).evict(any(), any());
+            assertEquals(0, metrics.outcomeCount(RegistrationMetrics.Outcome.REGISTERED));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(existenceFilter).recordUser(12345678, "john.doe@example.com");
+            verify(userQueryService).evict(12345678, "john.doe@example.com");
+            assertEquals(1, metrics.outcomeCount(RegistrationMetrics.Outcome.REGISTERED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void persistUser_ManyFriends_ResolvedWithSingleQuery() {
+        // Arrange
+        List<Integer> friendsDni = new ArrayList<>();
+        List<User> friends = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            friendsDni.add(50000000 + i);
+            friends.add(User.builder().id(100 + i).dni(50000000 + i).build());
+        }
+        validRequest.setFriendsDni(friendsDni);
+        when(userRepository.findByDniIn(friendsDni)).thenReturn(friends);
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         PersistenceResponse response = userService.persistUser(validRequest);
 
         // Assert
         assertEquals("SUCCESS", response.getStatus());
-        verify(userRepository, times(1)).save(any(User.class)); // Only save user, no friends to add
+        verify(userRepository).saveAndFlush(argThat(user -> user.getFriends().size() == 25));
+        verify(userRepository, times(1)).findByDniIn(anyList());
+        verify(userRepository, never()).findByDni(any());
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key value violates unique constraint",
+                        new SQLException("duplicate key", "23505"), constraintName));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.registration.userservice.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private ExpiringCache<String, Integer> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ExpiringCache<>(3, 10, TimeUnit.NANOSECONDS, now::get);
+    }
+
+    @Test
+    void get_BeforeTtl_ReturnsValue() {
+        // Given
+        cache.put("a", 1);
+
+        // When
+        now.set(9);
+
+        // Then
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void get_AfterTtl_ReturnsNullAndRemovesEntry() {
+        // Given
+        cache.put("a", 1);
+
+        // When
+        now.set(10);
+
+        // Then
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_WhenFull_EvictsOldestEntry() {
+        // Given
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // When
+        cache.put("d", 4);
+
+        // Then
+        assertNull(cache.get("a"));
+        assertEquals(4, cache.get("d"));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void put_DropsExpiredEntriesAndRefreshesExistingKey() {
+        // Given
+        cache.put("a", 1);
+        now.set(5);
+        cache.put("b", 2);
+        cache.put("a", 3);
+
+        // When
+        now.set(12);
+        cache.put("c", 4);
+
+        // Then
+        assertEquals(3, cache.get("a"));
+        assertEquals(3, cache.size());
+        now.set(15);
+        cache.put("d", 5);
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void constructor_RejectsNonPositiveBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<>(0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<>(1, 0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void invalidateAll_RemovesEveryEntry() {
+        // Given
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // When
+        cache.invalidateAll();
+
+        // Then
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+}
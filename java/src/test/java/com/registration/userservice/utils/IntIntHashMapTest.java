@@ -0,0 +1,32 @@
+package com.registration.userservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntHashMapTest {
+
+    @Test
+    void putIfAbsent_KeepsFirstValueAndGrows() {
+        // Given
+        IntIntHashMap map = new IntIntHashMap(4);
+
+        // When
+        for (int key = -500; key < 500; key++) {
+            map.putIfAbsent(key * 7, key + 500);
+        }
+
+        // Then
+        assertEquals(1000, map.size());
+        assertFalse(map.putIfAbsent(7, 0));
+        assertEquals(501, map.get(7));
+        assertEquals(0, map.get(-3500));
+        assertEquals(IntIntHashMap.MISSING, map.get(8));
+        assertFalse(map.containsKey(8));
+    }
+
+    @Test
+    void putIfAbsent_RejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new IntIntHashMap(4).putIfAbsent(1, -1));
+    }
+}
@@ -0,0 +1,89 @@
+package com.registration.userservice.utils;
+
+import com.registration.userservice.config.RetryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryUtilTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RetryUtil retryUtil;
+
+    @BeforeEach
+    void setUp() {
+        retryUtil = new RetryUtil(new RetryProperties(Map.of("fast",
+                new RetryProperties.Policy(3, Duration.ofMillis(1), 2.0, Duration.ofMillis(5)))), meterRegistry);
+    }
+
+    @Test
+    void isRetryableException_TransientTypesAlongCauseChain() {
+        assertTrue(RetryUtil.isRetryableException(new SQLTransientConnectionException("pool timeout")));
+        assertTrue(RetryUtil.isRetryableException(
+                new CannotCreateTransactionException("no connection", new SQLException("refused"))));
+        assertTrue(RetryUtil.isRetryableException(new AmqpConnectException(new ConnectException("refused"))));
+        assertTrue(RetryUtil.isRetryableException(new IllegalStateException("wrapped",
+                new RuntimeException(new SQLTransientConnectionException("pool timeout")))));
+    }
+
+    @Test
+    void isRetryableException_DataErrorsAndNull_NotRetryable() {
+        assertFalse(RetryUtil.isRetryableException(null));
+        assertFalse(RetryUtil.isRetryableException(new DataIntegrityViolationException("duplicate key")));
+        // Messages are not inspected
+        assertFalse(RetryUtil.isRetryableException(new IllegalStateException("Connection refused")));
+    }
+
+    @Test
+    void execute_TransientFailure_RetriedUntilSuccess() throws Exception {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = retryUtil.execute("fast", context -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new SQLTransientConnectionException("pool timeout");
+            }
+            return "ok";
+        });
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get("retry.operations").tags("policy", "fast", "result", "retried").counter().count());
+        assertEquals(1, meterRegistry.get("retry.operations").tags("policy", "fast", "result", "recovered").counter().count());
+    }
+
+    @Test
+    void execute_NonTransientFailure_NotRetried() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When / Then
+        assertThrows(DataIntegrityViolationException.class, () -> retryUtil.execute("fast", context -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate key");
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void template_SharedPerPolicyAndDefaultAlwaysPresent() {
+        assertSame(retryUtil.template("fast"), retryUtil.template("fast"));
+        assertNotNull(retryUtil.template(RetryUtil.DEFAULT_POLICY));
+        assertThrows(IllegalArgumentException.class, () -> retryUtil.template("missing"));
+    }
+}
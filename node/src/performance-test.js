@@ -76,6 +76,7 @@ async function sendRegistrationRequest(userData) {
       timeout: config.server.requestTimeout,
       headers: {
         'Content-Type': 'application/json',
+        'X-Registration-Lane': 'bulk',
       },
     });
     
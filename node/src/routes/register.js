@@ -50,7 +50,9 @@ router.post('/register', validateRegistration, async (req, res) => {
       friendsDni: friendsDni.map(d => parseInt(d)),
     };
 
-    const response = await rabbitmqService.publishRegistration(registrationData);
+    // Load generators send X-Registration-Lane: bulk so they do not delay interactive users
+    const lane = req.get('X-Registration-Lane') === 'bulk' ? 'bulk' : 'interactive';
+    const response = await rabbitmqService.publishRegistration(registrationData, { lane });
 
     // Determine success based on response status
     const isSuccess = response.status === 'SUCCESS';
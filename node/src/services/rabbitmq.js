@@ -135,7 +135,7 @@ class RabbitMQService {
     }
   }
 
-  async publishRegistration(registrationData) {
+  async publishRegistration(registrationData, { lane = 'interactive' } = {}) {
     const { exchange, routingKeys } = config.rabbitmq;
     const correlationId = uuidv4();
     
@@ -163,11 +163,20 @@ class RabbitMQService {
       
       // Publish the message
       const message = Buffer.from(JSON.stringify(registrationData));
+      const now = Date.now();
       const options = {
         persistent: true,
         correlationId: correlationId,
+        // Stays the same across redeliveries, so LP1 answers a redelivered registration only once
+        messageId: correlationId,
         replyTo: config.rabbitmq.queues.ack,
-        timestamp: Date.now(),
+        timestamp: now,
+        // When this request stops waiting for its response; LP1 drops it unprocessed after that
+        headers: {
+          'x-deadline': now + config.server.requestTimeout,
+          // LP1 serves 'bulk' registrations from a separate lane with fewer consumers
+          'x-registration-lane': lane,
+        },
       };
       
       const published = this.channel.publish(
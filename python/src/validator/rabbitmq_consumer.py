@@ -104,7 +104,7 @@ class ValidationConsumer:
 
                     # Task 13: Publish response back via publisher
                     success = self.publisher.publish_validation_response(
-                        validation_response
+                        validation_response, properties
                     )
 
                     if success:
@@ -8,6 +8,10 @@ from validator.dto import ValidationResponse
 
 logger = logging.getLogger(__name__)
 
+# Request headers that travel on to LP1: when the gateway stops waiting for the response,
+# and whether LP1 serves the registration from its bulk lane
+FORWARDED_HEADERS = ("x-deadline", "x-registration-lane")
+
 
 class ValidationPublisher:
     """Publisher for validation responses to RabbitMQ."""
@@ -21,11 +25,14 @@ class ValidationPublisher:
         self.rabbitmq_connection = rabbitmq_connection
         self.config = rabbitmq_connection.config
 
-    def publish_validation_response(self, response: ValidationResponse) -> bool:
+    def publish_validation_response(
+        self, response: ValidationResponse, source_properties=None
+    ) -> bool:
         """Publish validation response to RabbitMQ.
 
         Args:
             response: ValidationResponse to publish
+            source_properties: Properties of the request being answered, if any
 
         Returns:
             True if published successfully, False otherwise
@@ -47,15 +54,18 @@ class ValidationPublisher:
             # Convert response to JSON
             message_body = response.to_json()
 
+            properties = {
+                "delivery_mode": 2,  # Make message persistent
+                "content_type": "application/json",
+            }
+            properties.update(self._forwarded_properties(source_properties))
+
             # Publish message
             channel.basic_publish(
                 exchange=self.config.RABBITMQ_EXCHANGE,
                 routing_key=routing_key,
                 body=message_body,
-                properties=pika.BasicProperties(
-                    delivery_mode=2,  # Make message persistent
-                    content_type="application/json",
-                ),
+                properties=pika.BasicProperties(**properties),
             )
 
             logger.info(
@@ -69,6 +79,28 @@ class ValidationPublisher:
             logger.error(f"Failed to publish validation response: {e}")
             return False
 
+    @staticmethod
+    def _forwarded_properties(source_properties) -> dict:
+        """Properties of the request that travel on to LP1.
+
+        The message id lets LP1 answer a redelivered registration only once,
+        the deadline lets it drop a registration nobody waits for any more, and
+        the lane keeps bulk registrations out of the interactive queue.
+        """
+        if source_properties is None:
+            return {}
+        forwarded = {}
+        if source_properties.message_id:
+            forwarded["message_id"] = source_properties.message_id
+        headers = {
+            name: value
+            for name, value in (source_properties.headers or {}).items()
+            if name in FORWARDED_HEADERS
+        }
+        if headers:
+            forwarded["headers"] = headers
+        return forwarded
+
     def publish_error_response(self, dni: int, error_message: str) -> bool:
         """Publish an error response for a failed validation.
 
@@ -162,3 +162,48 @@ class TestValidationPublisher:
             # Verify properties were passed to publish
             call_args = mock_channel.basic_publish.call_args
             assert call_args[1]["properties"] == mock_props_instance
+
+    def test_publish_forwards_message_id(self, publisher, mock_rabbitmq_connection):
+        """Test that the request's message id travels with the response."""
+        _, mock_channel, _ = mock_rabbitmq_connection
+
+        response = ValidationResponse(
+            dni=12345678,
+            status="OK",
+            message="Test",
+        )
+        source_properties = pika.BasicProperties(message_id="msg-1")
+
+        result = publisher.publish_validation_response(response, source_properties)
+
+        assert result is True
+        properties = mock_channel.basic_publish.call_args[1]["properties"]
+        assert properties.message_id == "msg-1"
+
+    def test_publish_forwards_deadline_and_lane_headers(
+        self, publisher, mock_rabbitmq_connection
+    ):
+        """Test that the gateway's deadline and lane travel with the response."""
+        _, mock_channel, _ = mock_rabbitmq_connection
+
+        response = ValidationResponse(
+            dni=12345678,
+            status="OK",
+            message="Test",
+        )
+        source_properties = pika.BasicProperties(
+            headers={
+                "x-deadline": 1760000000000,
+                "x-registration-lane": "bulk",
+                "x-unrelated": "dropped",
+            }
+        )
+
+        result = publisher.publish_validation_response(response, source_properties)
+
+        assert result is True
+        properties = mock_channel.basic_publish.call_args[1]["properties"]
+        assert properties.headers == {
+            "x-deadline": 1760000000000,
+            "x-registration-lane": "bulk",
+        }